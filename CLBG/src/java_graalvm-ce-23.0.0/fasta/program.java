@@ -11,10 +11,12 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import java.lang.foreign.*;
-import java.lang.invoke.MethodHandle;
+import energy.Harness;
+import energy.Workers;
 
 public class program {
     /** Maximum length of the FASTA sequence lines. */
@@ -23,37 +25,19 @@ public class program {
     /** Maximum number of FASTA sequence lines that we process at one time. */
     private static final int LINE_COUNT = 1024;
 
-    /** The threads that convert random numbers to nucleotide codes. */
+    /** The tasks that convert random numbers to nucleotide codes. */
     private static NucleotideSelector[] WORKERS = new NucleotideSelector[
-        Math.max(Runtime.getRuntime().availableProcessors() - 1, 1)
+        Math.max(Workers.threads() - 1, 1)
     ];
+    private static Future<?>[] RUNNING = new Future<?>[WORKERS.length];
+    private static ExecutorService POOL;
 
     private static final AtomicInteger IN = new AtomicInteger();
     private static final AtomicInteger OUT = new AtomicInteger();
     private static final int BUFFERS_IN_PLAY = 6;
 
-    static {
-        System.loadLibrary("rapl_interface");
-    }
-
     public static void main(String[] args) throws Throwable {
-        SymbolLookup lookup = SymbolLookup.loaderLookup();
-
-        MethodHandle start_rapl = Linker.nativeLinker().downcallHandle(
-                lookup.find("start_rapl").get(),
-                FunctionDescriptor.of(ValueLayout.JAVA_INT)
-        );
-
-        MethodHandle stop_rapl = Linker.nativeLinker().downcallHandle(
-                lookup.find("stop_rapl").get(),
-                FunctionDescriptor.ofVoid()
-        );
-
-        while ((int) start_rapl.invokeExact() > 0) {
-            run_benchmark(args);
-            stop_rapl.invokeExact();
-            cleanup();
-        }
+        Harness.run(() -> run_benchmark(args), program::cleanup);
     }
 
     private static void run_benchmark(String[] args) {
@@ -62,12 +46,18 @@ public class program {
         if (args.length > 0) {
             n = Integer.parseInt(args[0]);
         }
+        IN.set(0);
+        OUT.set(0);
+        StochasticBuffer.last = StochasticBuffer.SEED;
+        POOL = Workers.open();
         for (int i = 0; i < WORKERS.length; i++) {
             WORKERS[i] = new NucleotideSelector();
-            WORKERS[i].setDaemon(true);
-            WORKERS[i].start();
+            RUNNING[i] = POOL.submit(WORKERS[i]);
         }
-        try (OutputStream writer = System.out) {
+        // System.out is flushed rather than closed, so the next run can
+        // still write to it
+        OutputStream writer = System.out;
+        try {
             int bufferSize = LINE_COUNT * LINE_LENGTH;
 
             for (int i = 0; i < BUFFERS_IN_PLAY; i++) {
@@ -94,6 +84,7 @@ public class program {
             for (int i = 0; i < BUFFERS_IN_PLAY; i++) {
                 writeBuffer(writer);
             }
+            writer.flush();
         } catch (IOException ex) {
             ex.printStackTrace();
         }
@@ -168,12 +159,15 @@ public class program {
         );
     }
 
+    /** Stops the workers of the last run, which would otherwise wait forever. */
     private static void cleanup() {
-        IN.set(0);
-        OUT.set(0);
+        for (Future<?> worker : RUNNING) {
+            worker.cancel(true);
+        }
+        POOL.close();
     }
 
-    private static class NucleotideSelector extends Thread {
+    private static class NucleotideSelector implements Runnable {
         private final BlockingQueue<AbstractBuffer>
             in = new ArrayBlockingQueue<>(BUFFERS_IN_PLAY);
         private final BlockingQueue<AbstractBuffer> 
@@ -196,7 +190,7 @@ public class program {
                     out.put(line);
                 }
             } catch (InterruptedException ex) {
-                ex.printStackTrace();
+                // Stopped by cleanup once all buffers are written
             }
         }
 
@@ -293,8 +287,11 @@ public class program {
         private static final int IC = 29573;
         private static final float ONE_OVER_IM = 1f / IM;
 
+        /** The first LCG seed value of every run. */
+        private static final int SEED = 42;
+
         /** The last LCG seed value. */
-        private static int last = 42;
+        private static int last = SEED;
 
         protected final float[] randoms;
 
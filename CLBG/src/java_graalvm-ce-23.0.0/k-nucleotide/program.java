@@ -5,6 +5,9 @@
  modified by Tagir Valeev
  */
 
+import energy.Energy;
+import energy.Harness;
+import energy.Workers;
 import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 
 import java.io.BufferedReader;
@@ -12,8 +15,6 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.lang.foreign.*;
-import java.lang.invoke.MethodHandle;
 import java.nio.charset.StandardCharsets;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
@@ -24,7 +25,6 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 public class program {
@@ -34,52 +34,37 @@ public class program {
     // Store the input data for reuse across iterations
     static byte[] inputData = null;
 
-    static {
-        System.loadLibrary("rapl_interface");
-    }
-
     public static void main(String[] args) throws Throwable { 
-        SymbolLookup lookup = SymbolLookup.loaderLookup();
-
-        MethodHandle start_rapl = Linker.nativeLinker().downcallHandle(
-                lookup.find("start_rapl").get(),
-                FunctionDescriptor.of(ValueLayout.JAVA_INT)
-        );
-
-        MethodHandle stop_rapl = Linker.nativeLinker().downcallHandle(
-                lookup.find("stop_rapl").get(),
-                FunctionDescriptor.ofVoid()
-        );
-
-        inputData = readInput(System.in);
-
-        while (true) {
-            if ((int) start_rapl.invokeExact() == 0) break;
-            run_benchmark();
-            stop_rapl.invokeExact();
+        try (var r = Energy.region("read")) {
+            inputData = readInput(System.in);
         }
+
+        Harness.run(program::run_benchmark);
     }
 
     private static void run_benchmark() throws Exception {
         byte[] sequence = inputData;
 
-        ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime()
-                .availableProcessors());
+        ExecutorService pool = Workers.open();
         int[] fragmentLengths = { 1, 2, 3, 4, 6, 12, 18 };
-        List<Future<Result>> futures = pool.invokeAll(createFragmentTasks(sequence,
-                fragmentLengths));
+        List<Future<Result>> futures;
+        try (var r = Energy.region("count")) {
+            futures = pool.invokeAll(createFragmentTasks(sequence, fragmentLengths));
+        }
         pool.shutdown();
 
         StringBuilder sb = new StringBuilder();
 
-        sb.append(writeFrequencies(sequence.length, futures.get(0).get()));
-        sb.append(writeFrequencies(sequence.length - 1,
-                sumTwoMaps(futures.get(1).get(), futures.get(2).get())));
+        try (var r = Energy.region("write")) {
+            sb.append(writeFrequencies(sequence.length, futures.get(0).get()));
+            sb.append(writeFrequencies(sequence.length - 1,
+                    sumTwoMaps(futures.get(1).get(), futures.get(2).get())));
 
-        String[] nucleotideFragments = { "GGT", "GGTA", "GGTATT", "GGTATTTTAATT",
-                "GGTATTTTAATTTATAGT" };
-        for (String nucleotideFragment : nucleotideFragments) {
-            sb.append(writeCount(futures, nucleotideFragment));
+            String[] nucleotideFragments = { "GGT", "GGTA", "GGTATT", "GGTATTTTAATT",
+                    "GGTATTTTAATTTATAGT" };
+            for (String nucleotideFragment : nucleotideFragments) {
+                sb.append(writeCount(futures, nucleotideFragment));
+            }
         }
 
         System.out.print(sb);
@@ -124,7 +109,8 @@ public class program {
         for (int fragmentLength : fragmentLengths) {
             for (int index = 0; index < fragmentLength; index++) {
                 int offset = index;
-                tasks.add(() -> createFragmentMap(sequence, offset, fragmentLength));
+                tasks.add(Workers.task("fragment " + fragmentLength,
+                        () -> createFragmentMap(sequence, offset, fragmentLength)));
             }
         }
         return tasks;
@@ -0,0 +1,44 @@
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.ValueLayout;
+
+import org.graalvm.nativeimage.hosted.Feature;
+import org.graalvm.nativeimage.hosted.RuntimeForeignAccess;
+
+/**
+ * Registers the downcalls of program to the pcre2_* functions with native-image,
+ * one per distinct FunctionDescriptor.
+ */
+public class Pcre2Feature implements Feature {
+    @Override
+    public void duringSetup(DuringSetupAccess access) {
+        // pcre2_compile_8
+        RuntimeForeignAccess.registerForDowncall(FunctionDescriptor.of(ValueLayout.ADDRESS,
+                ValueLayout.ADDRESS, ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT,
+                ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.ADDRESS));
+        // pcre2_jit_compile_8
+        RuntimeForeignAccess.registerForDowncall(FunctionDescriptor.of(ValueLayout.JAVA_INT,
+                ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+        // pcre2_match_data_create_8
+        RuntimeForeignAccess.registerForDowncall(FunctionDescriptor.of(ValueLayout.ADDRESS,
+                ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
+        // pcre2_get_ovector_pointer_8
+        RuntimeForeignAccess.registerForDowncall(FunctionDescriptor.of(ValueLayout.ADDRESS,
+                ValueLayout.ADDRESS));
+        // pcre2_jit_match_8
+        RuntimeForeignAccess.registerForDowncall(FunctionDescriptor.of(ValueLayout.JAVA_INT,
+                ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG,
+                ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT, ValueLayout.ADDRESS,
+                ValueLayout.ADDRESS));
+        // pcre2_get_error_message_8
+        RuntimeForeignAccess.registerForDowncall(FunctionDescriptor.of(ValueLayout.JAVA_INT,
+                ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+        // pcre2_substitute_8
+        RuntimeForeignAccess.registerForDowncall(FunctionDescriptor.of(ValueLayout.JAVA_INT,
+                ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG,
+                ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT, ValueLayout.ADDRESS,
+                ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG,
+                ValueLayout.ADDRESS, ValueLayout.ADDRESS));
+        // pcre2_code_free_8 and pcre2_match_data_free_8
+        RuntimeForeignAccess.registerForDowncall(FunctionDescriptor.ofVoid(ValueLayout.ADDRESS));
+    }
+}
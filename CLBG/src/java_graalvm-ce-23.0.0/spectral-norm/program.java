@@ -7,35 +7,17 @@ based on the Go entry by K P anonymous
 */
 
 import java.text.DecimalFormat;
+import java.util.concurrent.ExecutorService;
 
-import java.lang.foreign.*;
-import java.lang.invoke.MethodHandle;
+import energy.Harness;
+import energy.Workers;
 
 public class program {
     private static final DecimalFormat formatter = new DecimalFormat("#.000000000");
-    private static final int NCPU = Runtime.getRuntime().availableProcessors();
-
-    static {
-        System.loadLibrary("rapl_interface");
-    }
+    private static final int NCPU = Workers.threads();
 
     public static void main(String[] args) throws Throwable {
-        SymbolLookup lookup = SymbolLookup.loaderLookup();
-
-        MethodHandle start_rapl = Linker.nativeLinker().downcallHandle(
-                lookup.find("start_rapl").get(),
-                FunctionDescriptor.of(ValueLayout.JAVA_INT)
-        );
-
-        MethodHandle stop_rapl = Linker.nativeLinker().downcallHandle(
-                lookup.find("stop_rapl").get(),
-                FunctionDescriptor.ofVoid()
-        );
-
-        while ((int) start_rapl.invokeExact() > 0) {
-            run_benchmark(args);
-            stop_rapl.invokeExact();
-        }
+        Harness.run(() -> run_benchmark(args));
     }
 
     private static void run_benchmark(String[] args) throws InterruptedException {
@@ -60,23 +42,18 @@ public class program {
 
     private static void aTimesTransp(double[] v, double[] u) throws InterruptedException {
         final var x = new double[u.length];
-        final var t = new Thread[NCPU];
-        for (int i = 0; i < NCPU; i++) {
-            t[i] = new Times(x, i * v.length / NCPU, (i + 1) * v.length / NCPU, u, false);
-            t[i].start();
+        try (ExecutorService pool = Workers.open()) {
+            for (int i = 0; i < NCPU; i++)
+                pool.execute(new Times(x, i * v.length / NCPU, (i + 1) * v.length / NCPU, u, false));
         }
-        for (int i = 0; i < NCPU; i++)
-            t[i].join();
 
-        for (int i = 0; i < NCPU; i++) {
-            t[i] = new Times(v, i * v.length / NCPU, (i + 1) * v.length / NCPU, x, true);
-            t[i].start();
+        try (ExecutorService pool = Workers.open()) {
+            for (int i = 0; i < NCPU; i++)
+                pool.execute(new Times(v, i * v.length / NCPU, (i + 1) * v.length / NCPU, x, true));
         }
-        for (int i = 0; i < NCPU; i++)
-            t[i].join();
     }
 
-    private final static class Times extends Thread {
+    private final static class Times implements Runnable {
         private final double[] v, u;
         private final int ii, n;
         private final boolean transpose;
@@ -10,10 +10,11 @@
  
 
 import java.io.*;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import java.lang.foreign.*;
-import java.lang.invoke.MethodHandle;
+import energy.Harness;
+import energy.Workers;
 
 public final class program {
     static byte[][] out;
@@ -21,10 +22,6 @@ public final class program {
     static double[] Crb;
     static double[] Cib;
 
-    static {
-        System.loadLibrary("rapl_interface");
-    }
-
     static int getByte(int x, int y){
         double Ci=Cib[y];
         int res=0;
@@ -60,22 +57,7 @@ public final class program {
     }
  
     public static void main(String[] args) throws Throwable {
-        SymbolLookup lookup = SymbolLookup.loaderLookup();
-
-        MethodHandle start_rapl = Linker.nativeLinker().downcallHandle(
-                lookup.find("start_rapl").get(),
-                FunctionDescriptor.of(ValueLayout.JAVA_INT)
-        );
-
-        MethodHandle stop_rapl = Linker.nativeLinker().downcallHandle(
-                lookup.find("stop_rapl").get(),
-                FunctionDescriptor.ofVoid()
-        );
-
-        while ((int) start_rapl.invokeExact() > 0) {
-            run_benchmark(args);
-            stop_rapl.invokeExact();
-        }
+        Harness.run(() -> run_benchmark(args));
     }
 
     static void run_benchmark(String[] args) throws Exception {
@@ -87,15 +69,13 @@ public final class program {
         yCt=new AtomicInteger();
         out=new byte[N][(N+7)/8];
 
-        Thread[] pool=new Thread[2*Runtime.getRuntime().availableProcessors()];
-        for (int i=0;i<pool.length;i++)
-            pool[i]=new Thread(){
-                public void run() {
+        int threads=2*Workers.threads();
+        try (ExecutorService pool=Workers.open(threads)) {
+            for (int i=0;i<threads;i++)
+                pool.execute(() -> {
                      int y; while((y=yCt.getAndIncrement())<out.length) putLine(y,out[y]);
-                }
-            };
-        for (Thread t:pool) t.start();
-        for (Thread t:pool) t.join();
+                });
+        }
 
         OutputStream stream = new BufferedOutputStream(System.out);
         stream.write(("P4\n"+N+" "+N+"\n").getBytes());
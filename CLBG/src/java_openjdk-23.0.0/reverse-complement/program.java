@@ -10,18 +10,13 @@
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ExecutorService;
 
-import java.lang.foreign.*;
-import java.lang.invoke.MethodHandle;
+import energy.Harness;
+import energy.Workers;
 
 public final class program {
 
-    static final ForkJoinPool fjPool = new ForkJoinPool();
-
     static final byte[] map = new byte[128];
     
     static byte[] inputData = null;
@@ -31,11 +26,9 @@ public final class program {
                        "TGVHCDM\nKNSYAAWBRTGVHCDMKNSYAAWBR"};
         for (int i = 0; i < mm[0].length(); i++)
             map[mm[0].charAt(i)] = (byte) mm[1].charAt(i);
-            
-        System.loadLibrary("rapl_interface");
     }
 
-    private static class Reverse extends RecursiveAction {
+    private static class Reverse implements Runnable {
         private byte[] buf;
         private int begin;
         private int end;
@@ -46,7 +39,7 @@ public final class program {
             this.end = end;
         }
 
-        protected void compute() {
+        public void run() {
             byte[] buf = this.buf;
             int begin = this.begin;
             int end = this.end;
@@ -67,24 +60,9 @@ public final class program {
     }
     
     public static void main(String[] args) throws Throwable {
-        SymbolLookup lookup = SymbolLookup.loaderLookup();
-
-        MethodHandle start_rapl = Linker.nativeLinker().downcallHandle(
-                lookup.find("start_rapl").get(),
-                FunctionDescriptor.of(ValueLayout.JAVA_INT)
-        );
-
-        MethodHandle stop_rapl = Linker.nativeLinker().downcallHandle(
-                lookup.find("stop_rapl").get(),
-                FunctionDescriptor.ofVoid()
-        );
-
         inputData = readInput(System.in);
 
-        while ((int) start_rapl.invokeExact() > 0) {
-            run_benchmark();
-            stop_rapl.invokeExact();
-        }
+        Harness.run(program::run_benchmark);
     }
     
     private static byte[] readInput(InputStream in) throws IOException {
@@ -100,21 +78,16 @@ public final class program {
     private static void run_benchmark() throws IOException {
         byte[] buf = inputData.clone();
         
-        List<Reverse> tasks = new LinkedList<Reverse>();
-
-        for (int i = 0; i < buf.length; ) {
-            while (buf[i++] != '\n') ;
-            int data = i;
-            byte b;
-            while (i < buf.length && (b = buf[i++]) != '>') {
-                buf[i-1] = map[b];
+        try (ExecutorService pool = Workers.openShared()) {
+            for (int i = 0; i < buf.length; ) {
+                while (buf[i++] != '\n') ;
+                int data = i;
+                byte b;
+                while (i < buf.length && (b = buf[i++]) != '>') {
+                    buf[i-1] = map[b];
+                }
+                pool.execute(new Reverse(buf, data, i - 2));
             }
-            Reverse task = new Reverse(buf, data, i - 2);
-            fjPool.execute(task);
-            tasks.add(task);
-        }
-        for (Reverse task : tasks) {
-            task.join();
         }
 
         System.out.write(buf);
@@ -8,21 +8,16 @@
  */
 
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
-import java.lang.foreign.*;
-import java.lang.invoke.MethodHandle;
+import energy.Harness;
+import energy.Workers;
 
 public class program {
 
     private static final int MIN_DEPTH = 4;
     private static ExecutorService EXECUTOR_SERVICE;
 
-    static {
-        System.loadLibrary("rapl_interface");
-    }
-
     private static void run_benchmark(final String[] args) throws Exception {
         int n = 0;
         if (0 < args.length) {
@@ -39,11 +34,11 @@ public class program {
 
         final String[] results = new String[(maxDepth - MIN_DEPTH) / 2 + 1];
 
-        EXECUTOR_SERVICE = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        EXECUTOR_SERVICE = Workers.open();
 
         for (int d = MIN_DEPTH; d <= maxDepth; d += 2) {
             final int depth = d;
-            EXECUTOR_SERVICE.execute(() -> {
+            EXECUTOR_SERVICE.execute(Workers.task("depth " + depth, () -> {
                 int check = 0;
 
                 final int iterations = 1 << (maxDepth - depth + MIN_DEPTH);
@@ -53,7 +48,7 @@ public class program {
                 }
                 results[(depth - MIN_DEPTH) / 2] = 
                    iterations + "\t trees of depth " + depth + "\t check: " + check;
-            });
+            }));
         }
 
         EXECUTOR_SERVICE.shutdown();
@@ -68,22 +63,7 @@ public class program {
     }
 
     public static void main(final String[] args) throws Exception, Throwable {
-        SymbolLookup lookup = SymbolLookup.loaderLookup();
-
-        MethodHandle start_rapl = Linker.nativeLinker().downcallHandle(
-                lookup.find("start_rapl").get(),
-                FunctionDescriptor.of(ValueLayout.JAVA_INT)
-        );
-
-        MethodHandle stop_rapl = Linker.nativeLinker().downcallHandle(
-                lookup.find("stop_rapl").get(),
-                FunctionDescriptor.ofVoid()
-        );
-
-        while ((int) start_rapl.invokeExact() > 0) {
-            run_benchmark(args);
-            stop_rapl.invokeExact();
-        }
+        Harness.run(() -> run_benchmark(args));
     }
 
     private static TreeNode bottomUpTree(final int depth) {
@@ -6,10 +6,11 @@
  *
  */
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import java.lang.foreign.*;
-import java.lang.invoke.MethodHandle;
+import energy.Harness;
+import energy.Workers;
 
 public final class program implements Runnable
 {
@@ -24,10 +25,6 @@ public final class program implements Runnable
     
     int[] p, pp, count;
 
-    static {
-        System.loadLibrary("rapl_interface");
-    }
-
     void print()
     {
         for ( int i = 0; i < p.length; i++ ) {
@@ -162,17 +159,11 @@ public final class program implements Runnable
         chkSums  = new int[NTASKS];
         taskId = new AtomicInteger(0);
 
-        int nthreads = Runtime.getRuntime().availableProcessors();
-        Thread[] threads = new Thread[nthreads];
-        for ( int i=0; i<nthreads; ++i ) {
-            threads[i] = new Thread( new program() );
-            threads[i].start();
-        }
-        for ( Thread t : threads ) {
-            try {
-                t.join();
+        int nthreads = Workers.threads();
+        try ( ExecutorService pool = Workers.open() ) {
+            for ( int i=0; i<nthreads; ++i ) {
+                pool.execute( new program() );
             }
-            catch ( InterruptedException e ) {}
         }
         
         int res = 0;
@@ -188,21 +179,6 @@ public final class program implements Runnable
     }
 
     public static void main(String[] args) throws Throwable {
-        SymbolLookup lookup = SymbolLookup.loaderLookup();
-
-        MethodHandle start_rapl = Linker.nativeLinker().downcallHandle(
-                lookup.find("start_rapl").get(),
-                FunctionDescriptor.of(ValueLayout.JAVA_INT)
-        );
-
-        MethodHandle stop_rapl = Linker.nativeLinker().downcallHandle(
-                lookup.find("stop_rapl").get(),
-                FunctionDescriptor.ofVoid()
-        );
-
-        while ((int) start_rapl.invokeExact() > 0) {
-            run_benchmark(args);
-            stop_rapl.invokeExact();
-        }
+        Harness.run(() -> run_benchmark(args));
     }
 }
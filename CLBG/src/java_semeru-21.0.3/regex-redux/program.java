@@ -6,6 +6,10 @@
    modified for JVM compatibility
 */
 
+import energy.Energy;
+import energy.Harness;
+import energy.Workers;
+
 import java.lang.foreign.*;
 import java.lang.invoke.MethodHandle;
 import java.nio.charset.StandardCharsets;
@@ -15,12 +19,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 public class program {
     static {
-        System.loadLibrary("rapl_interface");
         System.loadLibrary("pcre2-8");
     }
 
@@ -52,28 +54,12 @@ public class program {
         SymbolLookup lookup = SymbolLookup.loaderLookup();
         Linker linker = Linker.nativeLinker();
 
-        // Load RAPL interface functions
-        MethodHandle start_rapl = linker.downcallHandle(
-                lookup.find("start_rapl").get(),
-                FunctionDescriptor.of(ValueLayout.JAVA_INT)
-        );
-
-        MethodHandle stop_rapl = linker.downcallHandle(
-                lookup.find("stop_rapl").get(),
-                FunctionDescriptor.ofVoid()
-        );
-
         // Load PCRE2 functions
         initializePcre2Functions(lookup, linker);
 
-        // Run benchmark with energy measurement
-        while ((int) start_rapl.invokeExact() > 0) {
-            run_benchmark();
-            stop_rapl.invokeExact();
-            
-            // Force garbage collection between iterations
-            System.gc();
-        }
+        // Run benchmark with energy measurement, forcing garbage collection
+        // between iterations
+        Harness.run(program::run_benchmark, System::gc);
     }
 
     private static void initializePcre2Functions(SymbolLookup lookup, Linker linker) {
@@ -150,17 +136,18 @@ public class program {
             var rawInputBuffer = arena.allocate(initialLength);
             rawInputBuffer.asByteBuffer().put(rawInput);
             
-            var initialPattern = compilePattern(">.*\\n|\\n");
-            try {
-                sequenceLength = substitute(initialPattern, rawInputBuffer, initialLength,
-                        NULL, sequence, initialLength, "");
-            } finally {
-                freePattern(initialPattern);
+            try (var r = Energy.region("strip")) {
+                var initialPattern = compilePattern(">.*\\n|\\n");
+                try {
+                    sequenceLength = substitute(initialPattern, rawInputBuffer, initialLength,
+                            NULL, sequence, initialLength, "");
+                } finally {
+                    freePattern(initialPattern);
+                }
             }
 
             // Create executor service for parallel tasks
-            ExecutorService executorService = 
-                Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+            ExecutorService executorService = Workers.open();
             
             // Process the magic regex substitutions
             Future<Integer> magicRegExpsCount = executorService.submit(() -> {
@@ -171,7 +158,7 @@ public class program {
                 iub.put("<[^>]*>", "|");
                 iub.put("\\|[^|][^|]*\\|", "-");
 
-                try (Arena subArena = Arena.ofShared()) {
+                try (var r = Energy.region("magic"); Arena subArena = Arena.ofShared()) {
                     var currentLength = sequenceLength;
                     var bufLength = currentLength * 3 / 2;
                     var buf1 = subArena.allocate(bufLength);
@@ -245,8 +232,10 @@ public class program {
             }).toList();
 
             // Execute and print results
-            for (var result : executorService.invokeAll(tasks)) {
-                System.out.println(result.get());
+            try (var r = Energy.region("variants")) {
+                for (var result : executorService.invokeAll(tasks)) {
+                    System.out.println(result.get());
+                }
             }
 
             System.out.println();
@@ -0,0 +1,80 @@
+package clbg.binarytrees;
+
+import energy.jmh.Programs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "--enable-preview", "--enable-native-access=ALL-UNNAMED" })
+public class BinaryTreesBenchmark {
+    private static final MethodHandle RUN_BENCHMARK = Programs.method(program.class, "run_benchmark",
+            MethodType.methodType(void.class, String[].class));
+    private static final MethodHandle BOTTOM_UP_TREE;
+    private static final MethodHandle ITEM_CHECK;
+
+    static {
+        Class<?> node = Programs.nested(program.class, "TreeNode");
+        try {
+            BOTTOM_UP_TREE = Programs.lookup(program.class)
+                    .findStatic(program.class, "bottomUpTree", MethodType.methodType(node, int.class))
+                    .asType(MethodType.methodType(Object.class, int.class));
+            ITEM_CHECK = Programs.lookup(node)
+                    .findVirtual(node, "itemCheck", MethodType.methodType(int.class))
+                    .asType(MethodType.methodType(int.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** {@code INPUT} of the Makefile. */
+    @Param({ "21" })
+    public String n;
+
+    /** Depth of the trees built by {@link #bottomUpTree()}, the smallest the program allocates. */
+    @Param({ "4" })
+    public int depth;
+
+    private final Programs.Sink sink = new Programs.Sink();
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void redirect() {
+        stdout = Programs.redirect(sink);
+    }
+
+    @TearDown(Level.Trial)
+    public void restore() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long runBenchmark() throws Throwable {
+        RUN_BENCHMARK.invokeExact(new String[] { n });
+        return sink.bytes;
+    }
+
+    /** Allocates a tree and walks it, as each task of the program does. */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int bottomUpTree() throws Throwable {
+        Object tree = (Object) BOTTOM_UP_TREE.invokeExact(depth);
+        return (int) ITEM_CHECK.invokeExact(tree);
+    }
+}
@@ -0,0 +1,86 @@
+package clbg.fannkuchredux;
+
+import energy.jmh.Programs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "--enable-preview", "--enable-native-access=ALL-UNNAMED" })
+public class FannkuchReduxBenchmark {
+    private static final MethodHandle RUN_BENCHMARK = Programs.method(program.class, "run_benchmark",
+            MethodType.methodType(void.class, String[].class));
+    private static final VarHandle FACT = Programs.field(program.class, "Fact", int[].class);
+
+    /** {@code INPUT} of the Makefile. */
+    @Param({ "12" })
+    public String n;
+
+    private final Programs.Sink sink = new Programs.Sink();
+    private PrintStream stdout;
+    private program permutations;
+    private int total;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        stdout = Programs.redirect(sink);
+
+        // The factorial table run_benchmark fills before starting its tasks
+        int size = Integer.parseInt(n);
+        int[] fact = new int[size + 1];
+        fact[0] = 1;
+        for (int i = 1; i < fact.length; i++) {
+            fact[i] = fact[i - 1] * i;
+        }
+        FACT.set(fact);
+        total = fact[size];
+
+        permutations = new program();
+        permutations.p = new int[size];
+        permutations.pp = new int[size];
+        permutations.count = new int[size];
+        permutations.firstPermutation(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void restore() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long runBenchmark() throws Throwable {
+        RUN_BENCHMARK.invokeExact(new String[] { n });
+        return sink.bytes;
+    }
+
+    /** Flips the next permutation, walking all {@code n!} of them in order. */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int countFlips() {
+        if (++index == total) {
+            index = 0;
+            permutations.firstPermutation(0);
+        } else {
+            permutations.nextPermutation();
+        }
+        return permutations.countFlips();
+    }
+}
@@ -0,0 +1,59 @@
+package clbg.fasta;
+
+import energy.jmh.Programs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "--enable-preview", "--enable-native-access=ALL-UNNAMED" })
+public class FastaBenchmark {
+    private static final MethodHandle RUN_BENCHMARK = Programs.method(program.class, "run_benchmark",
+            MethodType.methodType(void.class, String[].class));
+    private static final MethodHandle CLEANUP = Programs.method(program.class, "cleanup",
+            MethodType.methodType(void.class));
+
+    /** {@code INPUT} of the Makefile. */
+    @Param({ "25000000" })
+    public String n;
+
+    private final Programs.Sink sink = new Programs.Sink();
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void redirect() {
+        stdout = Programs.redirect(sink);
+    }
+
+    /** The same cleanup the harness runs between windows. */
+    @TearDown(Level.Iteration)
+    public void cleanup() throws Throwable {
+        CLEANUP.invokeExact();
+    }
+
+    @TearDown(Level.Trial)
+    public void restore() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long runBenchmark() throws Throwable {
+        RUN_BENCHMARK.invokeExact(new String[] { n });
+        return sink.bytes;
+    }
+}
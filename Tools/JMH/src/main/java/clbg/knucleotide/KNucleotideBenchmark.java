@@ -0,0 +1,73 @@
+package clbg.knucleotide;
+
+import energy.jmh.Programs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayInputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "--enable-preview", "--enable-native-access=ALL-UNNAMED" })
+public class KNucleotideBenchmark {
+    private static final MethodHandle RUN_BENCHMARK = Programs.method(program.class, "run_benchmark",
+            MethodType.methodType(void.class));
+
+    /** Size of the fasta output in {@code knucleotide-input25000000.txt}. */
+    @Param({ "25000000" })
+    public int n;
+
+    private final Programs.Sink sink = new Programs.Sink();
+    private PrintStream stdout;
+    private byte[] sequence;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        program.inputData = program.readInput(new ByteArrayInputStream(Programs.fasta(n)));
+        sequence = program.inputData;
+        stdout = Programs.redirect(sink);
+    }
+
+    @TearDown(Level.Trial)
+    public void restore() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long runBenchmark() throws Throwable {
+        RUN_BENCHMARK.invokeExact();
+        return sink.bytes;
+    }
+
+    /** Counts one frame of the sequence, a single task of run_benchmark. */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object createFragmentMap(Fragments fragments) {
+        return program.createFragmentMap(sequence, 0, fragments.fragmentLength);
+    }
+
+    /**
+     * The fragment lengths run_benchmark counts, in a state of their own so
+     * only createFragmentMap runs once per length.
+     */
+    @State(Scope.Benchmark)
+    public static class Fragments {
+        @Param({ "1", "2", "3", "4", "6", "12", "18" })
+        public int fragmentLength;
+    }
+}
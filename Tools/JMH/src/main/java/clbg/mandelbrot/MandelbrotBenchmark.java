@@ -0,0 +1,76 @@
+package clbg.mandelbrot;
+
+import energy.jmh.Programs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "--enable-preview", "--enable-native-access=ALL-UNNAMED" })
+public class MandelbrotBenchmark {
+    /** {@code INPUT} of the Makefile. */
+    @Param({ "16000" })
+    public int n;
+
+    private final Programs.Sink sink = new Programs.Sink();
+    private PrintStream stdout;
+    private byte[] line;
+    private int y;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        stdout = Programs.redirect(sink);
+
+        // The coordinates run_benchmark computes before rendering
+        program.Crb = new double[n + 7];
+        program.Cib = new double[n + 7];
+        double invN = 2.0 / n;
+        for (int i = 0; i < n; i++) {
+            program.Cib[i] = i * invN - 1.0;
+            program.Crb[i] = i * invN - 1.5;
+        }
+        line = new byte[(n + 7) / 8];
+    }
+
+    @TearDown(Level.Trial)
+    public void restore() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long runBenchmark() throws Exception {
+        program.run_benchmark(new String[] { Integer.toString(n) });
+        return sink.bytes;
+    }
+
+    /** Eight pixels of the middle row, which mixes escaping and bounded points. */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int getByte() {
+        return program.getByte(n / 2, n / 2);
+    }
+
+    /** One row, cycling through the image. */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public byte[] putLine() {
+        program.putLine(y, line);
+        y = (y + 1) % n;
+        return line;
+    }
+}
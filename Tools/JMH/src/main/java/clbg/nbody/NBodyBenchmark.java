@@ -0,0 +1,72 @@
+package clbg.nbody;
+
+import energy.jmh.Programs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "--enable-preview", "--enable-native-access=ALL-UNNAMED" })
+public class NBodyBenchmark {
+    private static final MethodHandle RUN_BENCHMARK = Programs.method(program.class, "run_benchmark",
+            MethodType.methodType(void.class, String[].class));
+
+    /** {@code INPUT} of the Makefile. */
+    @Param({ "50000000" })
+    public String n;
+
+    private final Programs.Sink sink = new Programs.Sink();
+    private PrintStream stdout;
+    private NBodySystem bodies;
+
+    @Setup(Level.Trial)
+    public void redirect() {
+        stdout = Programs.redirect(sink);
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        bodies = new NBodySystem();
+    }
+
+    @TearDown(Level.Trial)
+    public void restore() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long runBenchmark() throws Throwable {
+        RUN_BENCHMARK.invokeExact(new String[] { n });
+        return sink.bytes;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object advance() {
+        bodies.advance(0.01);
+        return bodies;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public double energy() {
+        return bodies.energy();
+    }
+}
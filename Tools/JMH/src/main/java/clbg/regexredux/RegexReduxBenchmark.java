@@ -0,0 +1,66 @@
+package clbg.regexredux;
+
+import energy.jmh.Programs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.PrintStream;
+import java.lang.foreign.Linker;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+
+/** Needs {@code libpcre2-8} on {@code LD_LIBRARY_PATH}, like the Makefile. */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "--enable-preview", "--enable-native-access=ALL-UNNAMED" })
+public class RegexReduxBenchmark {
+    private static final MethodHandle RUN_BENCHMARK = Programs.method(program.class, "run_benchmark",
+            MethodType.methodType(void.class));
+    private static final MethodHandle INITIALIZE_PCRE2 = Programs.method(program.class,
+            "initializePcre2Functions", MethodType.methodType(void.class, SymbolLookup.class, Linker.class));
+    private static final VarHandle RAW_INPUT = Programs.field(program.class, "rawInput", byte[].class);
+
+    /** Size of the fasta output in {@code regexredux-input5000000.txt}. */
+    @Param({ "5000000" })
+    public int n;
+
+    private final Programs.Sink sink = new Programs.Sink();
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        RAW_INPUT.set(Programs.fasta(n));
+        INITIALIZE_PCRE2.invokeExact(SymbolLookup.loaderLookup(), Linker.nativeLinker());
+        stdout = Programs.redirect(sink);
+    }
+
+    /** The same collection the harness runs between windows. */
+    @TearDown(Level.Iteration)
+    public void gc() {
+        System.gc();
+    }
+
+    @TearDown(Level.Trial)
+    public void restore() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long runBenchmark() throws Throwable {
+        RUN_BENCHMARK.invokeExact();
+        return sink.bytes;
+    }
+}
@@ -0,0 +1,68 @@
+package clbg.spectralnorm;
+
+import energy.jmh.Programs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "--enable-preview", "--enable-native-access=ALL-UNNAMED" })
+public class SpectralNormBenchmark {
+    private static final MethodHandle RUN_BENCHMARK = Programs.method(program.class, "run_benchmark",
+            MethodType.methodType(void.class, String[].class));
+    private static final MethodHandle A_TIMES_TRANSP = Programs.method(program.class, "aTimesTransp",
+            MethodType.methodType(void.class, double[].class, double[].class));
+
+    /** {@code INPUT} of the Makefile. */
+    @Param({ "5500" })
+    public String n;
+
+    private final Programs.Sink sink = new Programs.Sink();
+    private PrintStream stdout;
+    private double[] u;
+    private double[] v;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        stdout = Programs.redirect(sink);
+        u = new double[Integer.parseInt(n)];
+        v = new double[u.length];
+        Arrays.fill(u, 1.0);
+    }
+
+    @TearDown(Level.Trial)
+    public void restore() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long runBenchmark() throws Throwable {
+        RUN_BENCHMARK.invokeExact(new String[] { n });
+        return sink.bytes;
+    }
+
+    /** One multiplication by A^T A, of which run_benchmark does twenty. */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double[] aTimesTransp() throws Throwable {
+        A_TIMES_TRANSP.invokeExact(v, u);
+        return v;
+    }
+}
@@ -0,0 +1,80 @@
+package energy.jmh;
+
+import energy.Meter;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.profile.ProfilerException;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads RAPL around every JMH iteration through the harness {@link Meter}.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar -prof energy.jmh.EnergyProfiler
+ * </pre>
+ *
+ * <p>Reports the joules of each domain per iteration and per operation.
+ * Domains that counted nothing, e.g. uncore on servers, are left out.
+ */
+public final class EnergyProfiler implements InternalProfiler {
+    private final Meter meter;
+    private final double[] before = new double[Meter.DOMAINS];
+    private final double[] after = new double[Meter.DOMAINS];
+
+    public EnergyProfiler() throws ProfilerException {
+        try {
+            meter = Meter.open();
+        } catch (IOException | RuntimeException e) {
+            throw new ProfilerException(e);
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return "Energy of each iteration read from RAPL";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        read(before);
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams,
+            IterationParams iterationParams, IterationResult result) {
+        read(after);
+
+        long ops = result.getMetadata().getMeasuredOps();
+        List<Result> results = new ArrayList<>();
+        for (int domain = 0; domain < Meter.DOMAINS; domain++) {
+            double joules = after[domain] - before[domain];
+            if (joules == 0 && domain != Meter.PKG) {
+                continue;
+            }
+            String name = "energy." + Meter.NAMES[domain];
+            results.add(new ScalarResult(name, joules, "J", AggregationPolicy.AVG));
+            if (ops > 0) {
+                results.add(new ScalarResult(name + ".op", joules / ops, "J/op", AggregationPolicy.AVG));
+            }
+        }
+        return results;
+    }
+
+    private void read(double[] joules) {
+        try {
+            meter.read(joules);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package energy.jmh;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Access to the copied benchmark programs, whose entry points and state are
+ * mostly private, and to their standard output.
+ */
+public final class Programs {
+    private Programs() {
+    }
+
+    /** Finds a static method of {@code program}, private ones included. */
+    public static MethodHandle method(Class<?> program, String name, MethodType type) {
+        try {
+            return lookup(program).findStatic(program, name, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Finds a static field of {@code program}, private ones included. */
+    public static VarHandle field(Class<?> program, String name, Class<?> type) {
+        try {
+            return lookup(program).findStaticVarHandle(program, name, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Loads a nested class of a program, e.g. {@code program$TreeNode}. */
+    public static Class<?> nested(Class<?> program, String name) {
+        try {
+            return Class.forName(program.getName() + "$" + name, true, program.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static MethodHandles.Lookup lookup(Class<?> program) {
+        try {
+            return MethodHandles.privateLookupIn(program, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Points {@link System#out} at {@code out}. Closing the new stream only
+     * flushes it, since some programs close {@code System.out} when done.
+     * Returns the previous stream.
+     */
+    public static PrintStream redirect(OutputStream out) {
+        PrintStream previous = System.out;
+        System.setOut(new PrintStream(out, false) {
+            @Override
+            public void close() {
+                flush();
+            }
+        });
+        return previous;
+    }
+
+    /**
+     * Output of the fasta program for {@code n}, the input format of
+     * k-nucleotide, regex-redux and reverse-complement.
+     */
+    public static byte[] fasta(int n) throws Throwable {
+        Class<?> fasta = clbg.fasta.program.class;
+        MethodHandle run = method(fasta, "run_benchmark", MethodType.methodType(void.class, String[].class));
+        MethodHandle cleanup = method(fasta, "cleanup", MethodType.methodType(void.class));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream previous = redirect(out);
+        try {
+            run.invoke((Object) new String[] { Integer.toString(n) });
+            cleanup.invoke();
+        } finally {
+            System.setOut(previous);
+        }
+        return out.toByteArray();
+    }
+
+    /** Counts the bytes written to it, so the output of a benchmark cannot be eliminated. */
+    public static final class Sink extends OutputStream {
+        public long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
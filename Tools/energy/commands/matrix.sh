@@ -0,0 +1,397 @@
+#!/bin/bash
+
+MATRIX_NAME=""
+MATRIX_COUNT=10
+MATRIX_SKIP=0
+MATRIX_DIR="."
+MATRIX_LANGS=()
+MATRIX_BENCHS=()
+MATRIX_BACKEND="native"
+MATRIX_STOP=false
+MATRIX_PYTHON="python"
+
+MATRIX_GCS=()
+MATRIX_HEAPS=("default")
+MATRIX_PRETOUCH=("off" "on")
+MATRIX_THP=("off" "on")
+MATRIX_JITS=()
+
+matrix_description() {
+    echo "Measures Java benchmarks across a matrix of JVM configurations"
+}
+
+matrix_help() {
+    cat << HELP
+Usage:
+    $NAME matrix MATRIX [DIR] [OPTIONS]
+
+MATRIX:
+    gc    Collectors crossed with heap sizes, -XX:+AlwaysPreTouch and transparent huge pages.
+          G1, Parallel, generational ZGC, Shenandoah, Serial and Epsilon on HotSpot, the
+          -Xgcpolicy policies on OpenJ9, which only has the "off" pre-touch and huge page cells
+    jit   JIT configurations with both the "no-warmup" and "warmup" configs. The interpreter,
+          C1 only, tiered C1 and C2, C2 only and, on GraalVM, the Graal JIT on HotSpot, the
+          -Xjit optimization levels on OpenJ9
+
+DIR:
+    The base directory path with the language dirs to measure. Default current dir
+
+    Each benchmark is measured once per cell, with the "warmup" config unless the matrix
+    says otherwise. The measurements are kept in DIR/../matrix/MATRIX/<language>/<benchmark>/<cell>
+    and summarized in DIR/../matrix/MATRIX/MATRIX.csv. A cell that fails, e.g. Epsilon running out of heap,
+    is kept in the summary without results.
+
+Options:
+    -l, --lang     <languages>  Comma-separated list of languages. Default takes all java_* dirs under DIR
+    -b, --bench    <benchmarks> Comma-separated list of benchmarks. Default takes all dirs under LANGUAGES
+    -c, --count    <count>      Number of measurement repetitions per cell. Default 10
+    -s, --skip     <count>      Skips the first <count> repetitions when summarizing. Default 0
+        --stop                  Stop after a failed measurement
+        --backend  <backend>    Energy backend of the Java harness, "native", "msr" or "powercap". Default native
+        --gc       <gcs>        Comma-separated list of collectors. Default all of the JVM
+        --heap     <sizes>      Comma-separated list of heap sizes used for -Xms and -Xmx, e.g. 512m,4g.
+                                Default "default", the JVM's own sizing
+        --pretouch <states>     Comma-separated list of pre-touch states, "off" and/or "on". Default both
+        --thp      <states>     Comma-separated list of transparent huge page states. Default both
+        --jit      <jits>       Comma-separated list of JIT configurations. Default all of the JVM
+    -h, --help                  Show this help message
+
+HELP
+}
+
+matrix_openj9() {
+    [[ "$1" == *semeru* ]]
+}
+
+# Prints the JVM flags of collector $1
+matrix_gc_flags() {
+    case "$1" in
+        g1) echo "-XX:+UseG1GC" ;;
+        parallel) echo "-XX:+UseParallelGC" ;;
+        zgc) echo "-XX:+UseZGC" ;;
+        shenandoah) echo "-XX:+UseShenandoahGC" ;;
+        serial) echo "-XX:+UseSerialGC" ;;
+        epsilon) echo "-XX:+UnlockExperimentalVMOptions -XX:+UseEpsilonGC" ;;
+        gencon|balanced|optthruput|optavgpause|metronome|nogc) echo "-Xgcpolicy:$1" ;;
+        *) error "Unknown collector \"$1\"." ;;
+    esac
+}
+
+matrix_gc_axes() {
+    echo "Collector,Heap,PreTouch,HugePages"
+}
+
+# Prints a "<cell>|<axis values>|<jvm flags>" line per cell of language $1
+matrix_gc_cells() {
+    local gcs=("${MATRIX_GCS[@]}")
+    local pretouch=("${MATRIX_PRETOUCH[@]}")
+    local thp=("${MATRIX_THP[@]}")
+    local log="-Xlog:gc,gc+phases:file=gc.log"
+    if matrix_openj9 "$1"; then
+        if [[ ${#gcs[@]} -eq 0 ]]; then
+            gcs=("gencon" "balanced" "optthruput" "optavgpause" "metronome" "nogc")
+        fi
+        pretouch=("off")
+        thp=("off")
+        log="-Xverbosegclog:gc.log"
+    elif [[ ${#gcs[@]} -eq 0 ]]; then
+        gcs=("g1" "parallel" "zgc" "shenandoah" "serial" "epsilon")
+    fi
+
+    for gc in "${gcs[@]}"; do
+        for heap in "${MATRIX_HEAPS[@]}"; do
+            for touch in "${pretouch[@]}"; do
+                for pages in "${thp[@]}"; do
+                    local flags="$(matrix_gc_flags "$gc") $log"
+                    if [[ "$heap" != "default" ]]; then
+                        flags="$flags -Xms$heap -Xmx$heap"
+                    fi
+                    if [[ "$touch" == "on" ]]; then
+                        flags="$flags -XX:+AlwaysPreTouch"
+                    fi
+                    if [[ "$pages" == "on" ]]; then
+                        flags="$flags -XX:+UseTransparentHugePages"
+                    fi
+                    echo "${gc}_${heap}_pretouch-${touch}_thp-${pages}|$gc,$heap,$touch,$pages|$flags"
+                done
+            done
+        done
+    done
+}
+
+# Prints the JVM flags of JIT configuration $1 on language $2
+matrix_jit_flags() {
+    case "$1" in
+        interpreter) echo "-Xint" ;;
+        c1) echo "-XX:TieredStopAtLevel=1" ;;
+        tiered)
+            # GraalVM compiles with Graal unless told otherwise
+            if [[ "$2" == *graalvm* ]]; then
+                echo "-XX:+TieredCompilation -XX:-UseJVMCICompiler"
+            else
+                echo "-XX:+TieredCompilation"
+            fi
+            ;;
+        c2)
+            if [[ "$2" == *graalvm* ]]; then
+                echo "-XX:-TieredCompilation -XX:-UseJVMCICompiler"
+            else
+                echo "-XX:-TieredCompilation"
+            fi
+            ;;
+        graal) echo "-XX:+UnlockExperimentalVMOptions -XX:+EnableJVMCI -XX:+UseJVMCICompiler" ;;
+        default) echo "" ;;
+        noOpt|cold|warm|hot|veryHot|scorching) echo "-Xjit:optLevel=$1" ;;
+        *) error "Unknown JIT configuration \"$1\"." ;;
+    esac
+}
+
+matrix_jit_axes() {
+    echo "JIT,Config"
+}
+
+# Prints a "<cell>|<axis values>|<jvm flags>|<config>" line per cell of language $1
+matrix_jit_cells() {
+    local jits=("${MATRIX_JITS[@]}")
+    if [[ ${#jits[@]} -eq 0 ]]; then
+        if matrix_openj9 "$1"; then
+            jits=("interpreter" "default" "noOpt" "cold" "warm" "hot" "veryHot" "scorching")
+        elif [[ "$1" == *graalvm* ]]; then
+            jits=("interpreter" "c1" "tiered" "c2" "graal")
+        else
+            jits=("interpreter" "c1" "tiered" "c2")
+        fi
+    fi
+
+    for jit in "${jits[@]}"; do
+        for conf in "no-warmup" "warmup"; do
+            echo "${jit}_${conf}|$jit,$conf|$(matrix_jit_flags "$jit" "$1") -Denergy.jit=true|$conf"
+        done
+    done
+}
+
+matrix_failed_to() {
+    if $MATRIX_STOP; then
+        error "Failed to $1."
+    else
+        warning "Failed to $1."
+    fi
+}
+
+# Measures the benchmark in the current dir with JVM flags $2 and config $3 into cell dir $1
+matrix_measure() {
+    local cell_dir="$1"
+    local flags="$2"
+    local conf="${3:-warmup}"
+    local extras=(rss.txt gc.log jit.csv nanotime.csv sockets.csv)
+    local command=(env RAPL_ITERATIONS="$MATRIX_COUNT" make measure)
+    if [[ "$conf" == "no-warmup" ]]; then
+        command=(bash -c 'for _ in $(seq 1 '"$MATRIX_COUNT"'); do make measure || exit 1; done')
+    fi
+
+    rm -f "${extras[@]}"
+    if ! env LD_LIBRARY_PATH="$LIB_DIR:$LD_LIBRARY_PATH" ENERGY_BACKEND="$MATRIX_BACKEND" JVM_FLAGS="$flags" \
+        time -f "%M" -o rss.txt "${command[@]}" > output.txt; then
+        rm -f output.txt digest.txt "${extras[@]}"
+        matrix_failed_to "measure"; return 1
+    fi
+
+    local measurement=( $(find . -maxdepth 1 -type f -name "Intel_*.csv" -o -name "AMD_*.csv" -o -name "Powercap_*.csv") )
+    if [[ ! -f "$measurement" ]]; then
+        rm -f output.txt digest.txt "${extras[@]}"
+        matrix_failed_to "measure"; return 1
+    fi
+
+    if ! MEASURE_COUNT=$MATRIX_COUNT measure_verify "$conf"; then
+        rm -f "$measurement" output.txt digest.txt "${extras[@]}"
+        matrix_failed_to "verify"; return 1
+    fi
+    rm -f output.txt digest.txt
+
+    mv "$measurement" "$cell_dir"
+    for extra in "${extras[@]}"; do
+        if [[ -f "$extra" ]]; then
+            mv "$extra" "$cell_dir"
+        fi
+    done
+}
+
+matrix_main() {
+    if [[ $EUID -ne 0 ]]; then
+        error "Matrix requires root privileges."
+    fi
+
+    local options=$(getopt -o l:b:c:s: --long lang:,bench:,count:,skip:,stop,backend:,gc:,heap:,pretouch:,thp:,jit: -- "$@")
+    eval set -- "$options"
+
+    while true; do
+        case "$1" in
+            -l|--lang)
+                IFS="," read -r -a MATRIX_LANGS <<< "$2"
+                shift
+                ;;
+            -b|--bench)
+                IFS="," read -r -a MATRIX_BENCHS <<< "$2"
+                shift
+                ;;
+            -c|--count)
+                MATRIX_COUNT="$2"
+                shift
+                ;;
+            -s|--skip)
+                MATRIX_SKIP="$2"
+                shift
+                ;;
+            --stop)
+                MATRIX_STOP=true
+                ;;
+            --backend)
+                MATRIX_BACKEND="$2"
+                shift
+                ;;
+            --gc)
+                IFS="," read -r -a MATRIX_GCS <<< "$2"
+                shift
+                ;;
+            --heap)
+                IFS="," read -r -a MATRIX_HEAPS <<< "$2"
+                shift
+                ;;
+            --pretouch)
+                IFS="," read -r -a MATRIX_PRETOUCH <<< "$2"
+                shift
+                ;;
+            --thp)
+                IFS="," read -r -a MATRIX_THP <<< "$2"
+                shift
+                ;;
+            --jit)
+                IFS="," read -r -a MATRIX_JITS <<< "$2"
+                shift
+                ;;
+            --)
+                shift
+                break
+                ;;
+            *)
+                error "\"$1\" is not a known option. See \"$NAME matrix --help\"."
+                ;;
+        esac
+        shift
+    done
+
+    MATRIX_NAME="$1"
+    if [[ -z $(command -v "matrix_${MATRIX_NAME}_cells") ]]; then
+        error "Unknown matrix \"$MATRIX_NAME\". See \"$NAME matrix --help\"."
+    fi
+
+    if [[ ! -z "$2" ]]; then
+        MATRIX_DIR="$2"
+    fi
+
+    if [[ ! -d "$MATRIX_DIR" ]]; then
+        error "Specified base directory $MATRIX_DIR does not exist."
+    fi
+
+    if command -v python3 &>/dev/null; then
+        MATRIX_PYTHON="python3"
+    elif ! command -v python &>/dev/null; then
+        error "\"python\" is not installed."
+    fi
+
+    if [[ -z $(type -P time) ]]; then
+        error "GNU \"time\" is not installed. Please install the \"time\" package and try again."
+    fi
+
+    if [[ "$MATRIX_BACKEND" != "powercap" ]] && ! modprobe msr; then
+        error "Failed to load \"msr\" kernel module. Ensure it is available and try again."
+    fi
+
+    if [[ ${#MATRIX_LANGS[@]} -eq 0 ]]; then
+        MATRIX_LANGS=($(find "$MATRIX_DIR" -mindepth 1 -maxdepth 1 -type d -name "java_*" -exec basename {} \; | sort))
+        if [[ ${#MATRIX_LANGS[@]} -eq 0 ]]; then
+            error "No java_* language dirs found in \"$MATRIX_DIR\"."
+        fi
+    fi
+
+    if [[ ${#MATRIX_BENCHS[@]} -eq 0 ]]; then
+        declare -A BENCHMARK_SET
+
+        for lang in "${MATRIX_LANGS[@]}"; do
+            if [[ -d "$MATRIX_DIR/$lang" ]]; then
+                for benchmark in $(find "$MATRIX_DIR/$lang" -mindepth 1 -maxdepth 1 -type d -exec basename {} \; | sort); do
+                    BENCHMARK_SET["$benchmark"]=1
+                done
+            fi
+        done
+
+        MATRIX_BENCHS=($(printf "%s\n" "${!BENCHMARK_SET[@]}" | sort))
+
+        if [[ ${#MATRIX_BENCHS[@]} -eq 0 ]]; then
+            error "No benchmarks found under any language directory."
+        fi
+    fi
+
+    pushd "$MATRIX_DIR" >/dev/null
+
+    local matrix_dir="../matrix/$MATRIX_NAME"
+    local cell_dirs=()
+
+    for lang in "${MATRIX_LANGS[@]}"; do
+        local cells=()
+        mapfile -t cells < <("matrix_${MATRIX_NAME}_cells" "$lang")
+
+        for bench in "${MATRIX_BENCHS[@]}"; do
+            local bench_dir="$lang/$bench"
+            if [[ ! -d "$bench_dir" ]]; then
+                continue
+            fi
+
+            if [[ ! -f "$bench_dir/expected.txt" && ! -f "$bench_dir/expected.md5" ]]; then
+                warning "Missing required 'expected.txt' or 'expected.md5' file in "$bench_dir". Skipping."
+                continue
+            fi
+
+            pushd "$bench_dir" >/dev/null
+
+            if ! make clean >/dev/null; then
+                matrix_failed_to "clean"; popd >/dev/null; continue
+            fi
+
+            if ! make all >/dev/null; then
+                matrix_failed_to "build"; popd >/dev/null; continue
+            fi
+
+            for cell in "${cells[@]}"; do
+                local name values flags conf
+                IFS="|" read -r name values flags conf <<< "$cell"
+                local cell_dir="../../$matrix_dir/$bench_dir/$name"
+
+                info "Measuring $lang $bench with $name.\n"
+
+                rm -rf "$cell_dir"
+                mkdir -p "$cell_dir"
+                local status="ok"
+                if ! matrix_measure "$cell_dir" "$flags" "$conf"; then
+                    status="failed"
+                fi
+                printf "Language,Benchmark,%s,Flags,Status\n%s,%s,%s,\"%s\",%s\n" \
+                    "$(matrix_${MATRIX_NAME}_axes)" "$lang" "$bench" "$values" "$flags" "$status" > "$cell_dir/cell.csv"
+                cell_dirs+=("$matrix_dir/$bench_dir/$name")
+            done
+
+            popd >/dev/null
+        done
+    done
+
+    if [[ ${#cell_dirs[@]} -eq 0 ]]; then
+        error "No cells were measured."
+    fi
+
+    $MATRIX_PYTHON "$SCRIPTS_DIR/matrix.py" "${cell_dirs[@]}" \
+        --skip "$MATRIX_SKIP" \
+        --output "$matrix_dir/$MATRIX_NAME.csv" \
+        || error "Failed to summarize the matrix measurements."
+
+    popd >/dev/null
+}
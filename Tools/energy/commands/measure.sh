@@ -17,6 +17,30 @@ MEASURE_MIN_FREQ=""
 MEASURE_MAX_FREQ=""
 MEASURE_TURBO=""
 MEASURE_ASLR=""
+MEASURE_BACKEND="native"
+MEASURE_JFR=false
+MEASURE_DIGEST=false
+MEASURE_RUNTIME=""
+MEASURE_THREADS=""
+MEASURE_PINNING=""
+MEASURE_CORES=false
+MEASURE_COUNTERS=false
+MEASURE_REGIONS=false
+MEASURE_SAMPLER=false
+MEASURE_PROFILE=false
+MEASURE_AGENT=false
+MEASURE_METHODS=""
+MEASURE_CDS=false
+MEASURE_NATIVE=""
+MEASURE_PREBUILT=false
+MEASURE_CALIBRATE=false
+
+# The optional files a run leaves next to the RAPL CSV, kept with the results,
+# and everything a failed run has to remove. Patterns stay quoted here and are
+# expanded where the arrays are used
+MEASURE_EXTRAS=(nanotime.csv sockets.csv warmup.csv cores.csv tasks.csv counters.csv regions.csv timeline.csv
+    stacks.txt startup.csv methods.csv "program-*.jfr")
+MEASURE_ARTIFACTS=(perf.txt output.txt digest.txt "${MEASURE_EXTRAS[@]}")
 
 measure_description() {
     echo "Use \"perf\" and \"rapl_interface\" to measure programs"
@@ -33,6 +57,8 @@ DIR:
 Options:
     -n, --no-warmup           Only measures using "no-warmup" config
     -w, --warmup              Only measures using "warmup" config
+        --steady              Only measures using "steady" config, a warmup that runs until the
+                              Java benchmark is steady before measuring COUNT iterations
     -l, --lang   <languages>  Comma-separated list of languages. Default takes all dirs under DIR
     -b, --bench  <benchmarks> Comma-separated list of benchmarks. Default takes all dirs under LANGUAGES
     -s, --sleep  <seconds>    Number of seconds to sleep between each successful measurement. Default 60
@@ -40,6 +66,40 @@ Options:
     -c, --count  <count>      Number of measurement repetitions. Default 45
     -f, --freq   <freq>       perf measurement frequency in milliseconds. Default 500
         --setups <setups>     Comma-separated list of setups the OS will enter before measuring. Default production
+        --backend <backend>   Energy backend of the Java harness, "native", "msr" or "powercap". Default native
+        --runtime <runtime>   Threads of parallel Java benchmarks, "fresh", "platform", "virtual",
+                              "forkjoin" or "stealing". Default fresh
+        --threads <threads>   Number of threads parallel Java benchmarks spread their work over.
+                              Default one per CPU
+        --pinning <policy>    Pin the worker threads of parallel Java benchmarks to CPUs, "compact",
+                              "scatter", "physical" or "nosmt". Default unpinned
+        --cores               Attribute the core energy of pinned Java workers to each worker and task
+                              type, AMD only and requires --pinning
+        --counters            Count the hardware events of the Java benchmark threads in each window with
+                              perf_event_open, kept in counters.csv
+        --regions             Break the energy of Java benchmarks down by their Energy.region phases,
+                              kept in regions.csv
+        --sampler             Sample the power of Java benchmarks every millisecond, kept per window
+                              with GC pauses and regions in timeline.csv
+        --profile             Share the energy of Java benchmarks between their sampled stacks, kept as
+                              a collapsed energy flame graph in stacks.txt
+        --agent               Split the energy of each Java run into startup, first iteration, steady
+                              state and teardown with a -javaagent, kept in startup.csv
+        --methods <patterns>  Time the calls of the Java methods matching the comma separated
+                              Class::method patterns and their share of the energy per window, kept
+                              in methods.csv
+        --cds                 Run Java benchmarks from a class data sharing archive, or the shared
+                              classes cache of OpenJ9, trained once when they are built
+        --native              Run GraalVM benchmarks as native-image binaries built ahead of time
+        --native-pgo          Like --native, rebuilt with the profile of an instrumented run
+        --prebuilt            Run Java benchmarks through the launch.sh of "make launcher", written before
+                              perf starts, so measured runs skip make, javac and nix-shell. Others
+                              run "make measure" as usual
+        --calibrate           Measure the overhead of the Java measurement loop once per language
+                              directory with "make calibrate", kept next to its results
+        --jfr                 Record a JFR event per Java iteration, kept next to the results
+        --digest              Java benchmarks only keep the MD5 digest of their output, so writing
+                              it is not measured
     -h, --help                Show this help message
 
 HELP
@@ -99,6 +159,23 @@ Iterations            | ${YELLOW}$MEASURE_COUNT${NC}
 Measurement Freq      | ${YELLOW}$MEASURE_FREQ ms${NC}
 Measurement Sleep     | ${YELLOW}$MEASURE_SLEEP s${NC}
 Stop After Fail       | $MEASURE_STOP
+Java Energy Backend   | $MEASURE_BACKEND
+Java Runtime          | ${MEASURE_RUNTIME:-fresh}
+Java Threads          | ${MEASURE_THREADS:-$(nproc)}
+Java Thread Pinning   | ${MEASURE_PINNING:-none}
+Java Core Energy      | $MEASURE_CORES
+Java Counters         | $MEASURE_COUNTERS
+Java Energy Regions   | $MEASURE_REGIONS
+Java Power Sampler    | $MEASURE_SAMPLER
+Java Stack Profiler   | $MEASURE_PROFILE
+Java Startup Agent    | $MEASURE_AGENT
+Java Method Profiler  | ${MEASURE_METHODS:-none}
+Java CDS              | $MEASURE_CDS
+Java Native Image     | ${MEASURE_NATIVE:-false}
+Java Prebuilt Launch  | $MEASURE_PREBUILT
+Java Calibration      | $MEASURE_CALIBRATE
+Java Flight Recorder  | $MEASURE_JFR
+Java Output Digest    | $MEASURE_DIGEST
 
 ========== CPU Scaling & Performance ==========
 Scaling Driver        | $MEASURE_DRIVER ($MEASURE_DRIVER_STATUS)
@@ -125,7 +202,7 @@ measure_dependencies() {
         error "\"cpupower\" not found. Install \"linux-tools\" or equivalent package."
     fi
 
-    if ! modprobe msr; then
+    if [[ "$MEASURE_BACKEND" != "powercap" ]] && ! modprobe msr; then
         error "Failed to load \"msr\" kernel module. Ensure it is available and try again."
     fi
 }
@@ -135,33 +212,169 @@ measure_measure() {
         --append --output perf.txt \
         -e cache-misses,branch-misses,LLC-loads-misses,msr/cpu_thermal_margin/,cpu-clock,cycles \
         -e cstate_core/c3-residency/,cstate_core/c6-residency/,cstate_core/c7-residency/"
-    local proc_environment="env LD_LIBRARY_PATH=$LIB_DIR:LD_LIBRARY_PATH $MEASURE_PRIORITY $MEASURE_AFFINITY"
+    local proc_environment="env LD_LIBRARY_PATH=$LIB_DIR:LD_LIBRARY_PATH ENERGY_BACKEND=$MEASURE_BACKEND $MEASURE_PRIORITY $MEASURE_AFFINITY"
+    if [[ -n "$MEASURE_RUNTIME" ]]; then
+        proc_environment="$proc_environment RUNTIME=$MEASURE_RUNTIME"
+    fi
+    if [[ -n "$MEASURE_THREADS" ]]; then
+        proc_environment="$proc_environment THREADS=$MEASURE_THREADS"
+    fi
+    if [[ -n "$MEASURE_PINNING" ]]; then
+        proc_environment="$proc_environment AFFINITY=$MEASURE_PINNING"
+    fi
+    if $MEASURE_CORES; then
+        proc_environment="$proc_environment CORES=1"
+    fi
+    if $MEASURE_COUNTERS; then
+        proc_environment="$proc_environment COUNTERS=1"
+    fi
+    if $MEASURE_REGIONS; then
+        proc_environment="$proc_environment REGIONS=1"
+    fi
+    if $MEASURE_SAMPLER; then
+        proc_environment="$proc_environment SAMPLER=1"
+    fi
+    if $MEASURE_PROFILE; then
+        proc_environment="$proc_environment PROFILE=1"
+    fi
+    if $MEASURE_AGENT; then
+        proc_environment="$proc_environment AGENT=1"
+    fi
+    if [[ -n "$MEASURE_METHODS" ]]; then
+        proc_environment="$proc_environment METHODS=$MEASURE_METHODS"
+    fi
+    if $MEASURE_JFR; then
+        proc_environment="$proc_environment JFR=1"
+    fi
+    if $MEASURE_DIGEST; then
+        proc_environment="$proc_environment DIGEST=1"
+    fi
+    if [[ "$1" == "steady" ]]; then
+        proc_environment="$proc_environment STEADY=1"
+    fi
     local measure_command=""
+    local run="make measure"
+
+    # The launcher takes the same knobs as "make measure" and is written outside of perf,
+    # by the language Makefiles that have one
+    if $MEASURE_PREBUILT && grep -qs "^launcher:" Makefile ../Makefile; then
+        if ! eval "$proc_environment make launcher"; then
+            return 1
+        fi
+        run="./launch.sh"
+    fi
 
     case "$1" in
         no-warmup)
-            measure_command="$proc_environment $perf_command bash -c 'for _ in \$(seq 1 '"$MEASURE_COUNT"'); do make measure >> output.txt || exit 1; done'"
+            measure_command="$proc_environment $perf_command bash -c 'for _ in \$(seq 1 '"$MEASURE_COUNT"'); do $run >> output.txt || exit 1; done'"
             ;;
-        warmup)
-            measure_command="$proc_environment $perf_command env RAPL_ITERATIONS=$MEASURE_COUNT make measure >> output.txt"
+        warmup|steady)
+            measure_command="$proc_environment $perf_command env RAPL_ITERATIONS=$MEASURE_COUNT $run >> output.txt"
             ;;
     esac
     eval "$measure_command"
     return $?
 }
 
+# Runs "make calibrate" in language directory $1 and moves its results to $2
+measure_calibrate() {
+    local proc_environment="env LD_LIBRARY_PATH=$LIB_DIR:LD_LIBRARY_PATH ENERGY_BACKEND=$MEASURE_BACKEND $MEASURE_PRIORITY $MEASURE_AFFINITY"
+
+    pushd "$1" >/dev/null
+    info "Calibrating $1.\n"
+    rm -f calibration.csv Intel_*.csv AMD_*.csv Powercap_*.csv
+    local measurement=()
+    if eval "$proc_environment make calibrate" >/dev/null; then
+        measurement=( $(find . -maxdepth 1 -type f -name "Intel_*.csv" -o -name "AMD_*.csv" -o -name "Powercap_*.csv") )
+    fi
+    if [[ ! -f "$measurement" || ! -f calibration.csv ]]; then
+        warning "Failed to calibrate $1."
+    else
+        mkdir -p "$2"
+        mv calibration.csv "$2"
+        mv "$measurement" "$2/calibration_$(basename "$measurement")"
+    fi
+    rm -f calibration.csv Intel_*.csv AMD_*.csv Powercap_*.csv ${MEASURE_EXTRAS[@]}
+    make clean >/dev/null
+    popd >/dev/null
+}
+
+# Prints the "<md5> <bytes>" line a correct iteration writes to digest.txt
+measure_expected_digest() {
+    if [[ -f expected.md5 ]]; then
+        cat expected.md5
+    else
+        echo "$(md5sum < expected.txt | cut -d " " -f 1) $(wc -c < expected.txt)"
+    fi
+}
+
+# Prints a digest.txt line for each chunk of $2 bytes in file $1
+measure_digest_chunks() {
+    local total=$(wc -c < "$1")
+    local offset
+    for (( offset = 0; offset < total; offset += $2 )); do
+        local size=$(( total - offset < $2 ? total - offset : $2 ))
+        echo "$(tail -c +$(( offset + 1 )) "$1" | head -c "$size" | md5sum | cut -d " " -f 1) $size"
+    done
+}
+
+# Removes the files of a failed run, and any given as arguments
+measure_discard() {
+    rm -f "$@" ${MEASURE_ARTIFACTS[@]}
+}
+
 measure_verify() {
-    for _ in $(seq 1 "$MEASURE_COUNT"); do
-        cat expected.txt
-    done | cmp output.txt >/dev/null 2>&1
+    local output="output.txt"
+    local expected="expected.txt"
+    local temporary=()
+    if [[ -f digest.txt || ! -f expected.txt ]]; then
+        # Compare digests, either those of the harness or of output.txt
+        # when only expected.md5 is stored
+        expected=$(mktemp)
+        measure_expected_digest > "$expected"
+        temporary+=("$expected")
+
+        if [[ -f digest.txt ]]; then
+            output="digest.txt"
+        else
+            local size
+            read -r _ size < "$expected"
+            output=$(mktemp)
+            measure_digest_chunks output.txt "$size" > "$output"
+            temporary+=("$output")
+        fi
+    fi
 
-    if [[ $? -eq 0 ]]; then
+    local count=$MEASURE_COUNT
+    local status=0
+    if [[ "$1" == "steady" && -s "$expected" ]]; then
+        # The unmeasured warmup iterations print their output too, so
+        # there are at least as many whole copies as measured iterations
+        local output_size expected_size
+        output_size=$(wc -c < "$output")
+        expected_size=$(wc -c < "$expected")
+        count=$(( output_size / expected_size ))
+        if [[ $count -lt $MEASURE_COUNT || $(( output_size % expected_size )) -ne 0 ]]; then
+            status=1
+        fi
+    fi
+
+    if [[ $status -eq 0 ]]; then
+        for _ in $(seq 1 "$count"); do
+            cat "$expected"
+        done | cmp "$output" >/dev/null 2>&1
+        status=$?
+    fi
+
+    rm -f "${temporary[@]}"
+
+    if [[ $status -eq 0 ]]; then
         echo "${GREEN}Ok${NC}"
     else
         echo "${RED}Expected a different output${NC}"
     fi
 
-    return $?
+    return $status
 }
 
 measure_failed_to() {
@@ -177,7 +390,7 @@ measure_main() {
         error "Measure requires root privileges."
     fi
 
-    local options=$(getopt -o nwl:b:c:s: --long no-warmup,warmup,stop,setups:,lang:,bench:,count:,freq:,sleep: -- "$@")
+    local options=$(getopt -o nwl:b:c:s: --long no-warmup,warmup,stop,steady,jfr,digest,runtime:,threads:,pinning:,cores,counters,regions,sampler,profile,agent,methods:,cds,native,native-pgo,prebuilt,calibrate,setups:,backend:,lang:,bench:,count:,freq:,sleep: -- "$@")
     eval set -- "$options"
 
     while true; do
@@ -188,6 +401,9 @@ measure_main() {
             -w|--warmup)
                 MEASURE_CONFS=("warmup")
                 ;;
+            --steady)
+                MEASURE_CONFS=("steady")
+                ;;
             -l|--lang)
                 IFS="," read -r -a MEASURE_LANGS <<< "$2"
                 shift
@@ -211,6 +427,69 @@ measure_main() {
                 IFS="," read -r -a MEASURE_SETUPS <<< "$2"
                 shift
                 ;;
+            --backend)
+                MEASURE_BACKEND="$2"
+                shift
+                ;;
+            --runtime)
+                MEASURE_RUNTIME="$2"
+                shift
+                ;;
+            --threads)
+                MEASURE_THREADS="$2"
+                shift
+                ;;
+            --pinning)
+                MEASURE_PINNING="$2"
+                shift
+                ;;
+            --cores)
+                MEASURE_CORES=true
+                ;;
+            --counters)
+                MEASURE_COUNTERS=true
+                ;;
+            --regions)
+                MEASURE_REGIONS=true
+                ;;
+            --sampler)
+                MEASURE_SAMPLER=true
+                ;;
+            --profile)
+                MEASURE_PROFILE=true
+                ;;
+            --agent)
+                MEASURE_AGENT=true
+                ;;
+            --methods)
+                MEASURE_METHODS="$2"
+                shift
+                ;;
+            --cds)
+                MEASURE_CDS=true
+                # Exported so "make all" trains the archive before anything is measured
+                export CDS=1
+                ;;
+            --native)
+                MEASURE_NATIVE="native"
+                export NATIVE=1
+                ;;
+            --native-pgo)
+                MEASURE_NATIVE="pgo"
+                export NATIVE=pgo
+                ;;
+            --prebuilt)
+                MEASURE_PREBUILT=true
+                ;;
+            --calibrate)
+                MEASURE_CALIBRATE=true
+                ;;
+            --jfr)
+                MEASURE_JFR=true
+                ;;
+            --digest)
+                MEASURE_DIGEST=true
+                ;;
             --)
                 shift
                 break
@@ -234,8 +513,8 @@ measure_main() {
 
     if [[ ${#MEASURE_LANGS[@]} -eq 0 && ${#MEASURE_BENCHS[@]} -eq 0 ]]; then
         if [[ -f "Makefile" || -f "makefile" || -f "GNUmakefile" ]]; then
-            if [[ ! -f expected.txt ]]; then
-                error "Missing required 'expected.txt' file."
+            if [[ ! -f expected.txt && ! -f expected.md5 ]]; then
+                error "Missing required 'expected.txt' or 'expected.md5' file."
             fi
 
             measure_splash
@@ -254,24 +533,24 @@ measure_main() {
                     fi
 
                     if ! measure_measure "$conf"; then
-                        rm -f perf.txt output.txt
+                        measure_discard
                         measure_failed_to "measure"; continue
                     fi
 
-                    local measurement=( $(find . -maxdepth 1 -type f -name "Intel_*.csv" -o -name "AMD_*.csv") )
+                    local measurement=( $(find . -maxdepth 1 -type f -name "Intel_*.csv" -o -name "AMD_*.csv" -o -name "Powercap_*.csv") )
                     if [[ ! -f "$measurement" ]]; then
-                        rm -f perf.txt output.txt
+                        measure_discard
                         measure_failed_to "measure"; continue
                     fi
 
-                    if ! measure_verify; then
-                        rm -f "$measurement" perf.txt output.txt
+                    if ! measure_verify "$conf"; then
+                        measure_discard "$measurement"
                         if $MEASURE_STOP; then
                             exit 1
                         fi
                         continue
                     fi
-                    rm -f output.txt
+                    rm -f output.txt digest.txt
                 done
 
                 if [[ -n $(command -v "${setup}_clean") ]]; then
@@ -323,14 +602,18 @@ measure_main() {
         measure_setup "$setup"; sleep $MEASURE_SLEEP
         for conf in "${MEASURE_CONFS[@]}"; do
             for lang in "${MEASURE_LANGS[@]}"; do
+                if $MEASURE_CALIBRATE && grep -qs "^calibrate:" "$lang/Makefile"; then
+                    measure_calibrate "$lang" "../../$setup/$conf/$lang"
+                fi
+
                 for bench in "${MEASURE_BENCHS[@]}"; do
                     local bench_dir="$lang/$bench"
                     if [[ ! -d "$bench_dir" ]]; then
                         continue
                     fi
 
-                    if [[ ! -f "$bench_dir/expected.txt" ]]; then
-                        warning "Missing required 'expected.txt' file in "$bench_dir". Skipping."
+                    if [[ ! -f "$bench_dir/expected.txt" && ! -f "$bench_dir/expected.md5" ]]; then
+                        warning "Missing required 'expected.txt' or 'expected.md5' file in "$bench_dir". Skipping."
                         continue
                     fi
 
@@ -347,28 +630,33 @@ measure_main() {
                     fi
 
                     if ! measure_measure "$conf"; then
-                        rm -f perf.txt output.txt
+                        measure_discard
                         measure_failed_to "measure"; continue
                     fi
 
-                    local measurement=( $(find . -maxdepth 1 -type f -name "Intel_*.csv" -o -name "AMD_*.csv") )
+                    local measurement=( $(find . -maxdepth 1 -type f -name "Intel_*.csv" -o -name "AMD_*.csv" -o -name "Powercap_*.csv") )
                     if [[ ! -f "$measurement" ]]; then
-                        rm -f perf.txt output.txt
+                        measure_discard
                         measure_failed_to "measure"; continue
                     fi
 
-                    if ! measure_verify; then
-                        rm -f "$measurement" perf.txt output.txt
+                    if ! measure_verify "$conf"; then
+                        measure_discard "$measurement"
                         if $MEASURE_STOP; then
                             exit 1
                         fi
                         continue
                     fi
 
-                    rm -f output.txt
+                    rm -f output.txt digest.txt
                     local results_dir="../../../$setup/$conf/$bench_dir"
                     mkdir -p "$results_dir"
                     mv "$measurement" perf.txt "$results_dir"
+                    for extra in ${MEASURE_EXTRAS[@]}; do
+                        if [[ -f "$extra" ]]; then
+                            mv "$extra" "$results_dir"
+                        fi
+                    done
 
                     if [[ $MEASURE_SLEEP -gt 0 ]]; then
                         info "Sleeping for ${MEASURE_SLEEP}s."; sleep $MEASURE_SLEEP
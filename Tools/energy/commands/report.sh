@@ -128,8 +128,9 @@ report_main() {
     if [[ ${#REPORT_LANG[@]} -eq 0 && ${#REPORT_BENCH[@]} -eq 0 ]]; then
         local intel_csv=( $(find . -maxdepth 1 -type f -name "Intel_*.csv") )
         local amd_csv=( $(find . -maxdepth 1 -type f -name "AMD_*.csv") )
+        local powercap_csv=( $(find . -maxdepth 1 -type f -name "Powercap_*.csv") )
         local rapl_csv=""
-        if [[ ${#intel_csv[@]} -gt 0 || ${#amd_csv[@]} -gt 0 ]]; then
+        if [[ ${#intel_csv[@]} -gt 0 || ${#amd_csv[@]} -gt 0 || ${#powercap_csv[@]} -gt 0 ]]; then
             if [[ ${#intel_csv[@]} -gt 0 && ${#amd_csv[@]} -gt 0 ]]; then
                 error "Can't have both Intel and AMD measurements in current directory."
             fi
@@ -138,6 +139,8 @@ report_main() {
                 rapl_csv="${intel_csv[0]}"
             elif [[ ${#amd_csv[@]} -eq 1 ]]; then
                 rapl_csv="${amd_csv[0]}"
+            elif [[ ${#powercap_csv[@]} -eq 1 ]]; then
+                rapl_csv="${powercap_csv[0]}"
             else
                 error "Rapl measurement doesn't exist in current directory."
             fi
@@ -148,6 +151,24 @@ report_main() {
 
             rm -f rapl.csv
             $REPORT_PYTHON "$SCRIPTS_DIR/compile.py" "$rapl_csv" || error "Failed to compile rapl measurements."
+            if [[ -f counters.csv ]]; then
+                $REPORT_PYTHON "$SCRIPTS_DIR/counters.py" "$rapl_csv" counters.csv --skip "$REPORT_SKIP" || error "Failed to relate counters to rapl measurements."
+            fi
+            if [[ -f regions.csv ]]; then
+                $REPORT_PYTHON "$SCRIPTS_DIR/regions.py" regions.csv --rapl "$rapl_csv" --skip "$REPORT_SKIP" || error "Failed to break down energy regions."
+            fi
+            if [[ -f timeline.csv ]]; then
+                $REPORT_PYTHON "$SCRIPTS_DIR/timeline.py" timeline.csv --skip "$REPORT_SKIP" || error "Failed to plot the power timeline."
+            fi
+            if [[ -f stacks.txt ]]; then
+                $REPORT_PYTHON "$SCRIPTS_DIR/stacks.py" stacks.txt || error "Failed to rank the energy of the stacks."
+            fi
+            if [[ -f startup.csv ]]; then
+                $REPORT_PYTHON "$SCRIPTS_DIR/startup.py" startup.csv || error "Failed to split the energy of the runs."
+            fi
+            if [[ -f methods.csv ]]; then
+                $REPORT_PYTHON "$SCRIPTS_DIR/methods.py" methods.csv --skip "$REPORT_SKIP" || error "Failed to profile the methods."
+            fi
             if $REPORT_AVERAGE; then
                 rm -f "averaged_perf.csv" "averaged_rapl.csv"
                 $REPORT_PYTHON "$SCRIPTS_DIR/average.py" --rapl "$rapl_csv" --perf "perf.txt" --skip "$REPORT_SKIP" || error "Failed to average rapl measurements."
@@ -211,7 +232,7 @@ report_main() {
 
             while IFS= read -r file; do
                 rapl_csvs+=("$file")
-            done < <(find "$bench_dir" -maxdepth 1 -type f \( -name "Intel_*.csv" -o -name "AMD_*.csv" \))
+            done < <(find "$bench_dir" -maxdepth 1 -type f \( -name "Intel_*.csv" -o -name "AMD_*.csv" -o -name "Powercap_*.csv" \))
 
             intel_found=false
             amd_found=false
@@ -226,6 +247,46 @@ report_main() {
                 error "Can't have both Intel and AMD measurement files in $bench_dir for language $lang."
             fi
 
+            if [[ -f "$bench_dir/counters.csv" ]]; then
+                for csv in "$bench_dir"/Intel_*.csv "$bench_dir"/AMD_*.csv "$bench_dir"/Powercap_*.csv; do
+                    if [[ -f "$csv" ]]; then
+                        $REPORT_PYTHON "$SCRIPTS_DIR/counters.py" "$csv" "$bench_dir/counters.csv" \
+                            --skip "$REPORT_SKIP" --output "$bench_dir/iterations.csv" >/dev/null \
+                            || error "Failed to relate counters to rapl measurements."
+                    fi
+                done
+            fi
+
+            if [[ -f "$bench_dir/regions.csv" ]]; then
+                $REPORT_PYTHON "$SCRIPTS_DIR/regions.py" "$bench_dir/regions.csv" \
+                    --skip "$REPORT_SKIP" --output "$bench_dir/phases.csv" >/dev/null \
+                    || error "Failed to break down energy regions."
+            fi
+
+            if [[ -f "$bench_dir/timeline.csv" ]]; then
+                $REPORT_PYTHON "$SCRIPTS_DIR/timeline.py" "$bench_dir/timeline.csv" --skip "$REPORT_SKIP" \
+                    --output "$bench_dir/power.csv" --plot "$bench_dir/timeline.png" >/dev/null \
+                    || error "Failed to plot the power timeline."
+            fi
+
+            if [[ -f "$bench_dir/stacks.txt" ]]; then
+                $REPORT_PYTHON "$SCRIPTS_DIR/stacks.py" "$bench_dir/stacks.txt" \
+                    --output "$bench_dir/frames.csv" >/dev/null \
+                    || error "Failed to rank the energy of the stacks."
+            fi
+
+            if [[ -f "$bench_dir/startup.csv" ]]; then
+                $REPORT_PYTHON "$SCRIPTS_DIR/startup.py" "$bench_dir/startup.csv" \
+                    --output "$bench_dir/split.csv" >/dev/null \
+                    || error "Failed to split the energy of the runs."
+            fi
+
+            if [[ -f "$bench_dir/methods.csv" ]]; then
+                $REPORT_PYTHON "$SCRIPTS_DIR/methods.py" "$bench_dir/methods.csv" \
+                    --skip "$REPORT_SKIP" --output "$bench_dir/profile.csv" >/dev/null \
+                    || error "Failed to profile the methods."
+            fi
+
             perf_txt="$bench_dir/perf.txt"
             if [[ -f "$perf_txt" ]]; then
                 perf_txts+=("$perf_txt")
@@ -264,7 +325,16 @@ report_main() {
             fi
         done
 
-        $REPORT_PYTHON "$SCRIPTS_DIR/compile.py" "${rapl_csvs[@]}" || error "Failed to compile rapl measurements."
+        local overhead=()
+        local calibration_csvs=( "$REPORT_DIR/$lang"/calibration_*.csv )
+        if [[ -f "$REPORT_DIR/$lang/calibration.csv" && -f "${calibration_csvs[0]}" ]]; then
+            $REPORT_PYTHON "$SCRIPTS_DIR/calibrate.py" "${calibration_csvs[0]}" "$REPORT_DIR/$lang/calibration.csv" \
+                --output "$REPORT_DIR/$lang/overhead.csv" >/dev/null \
+                || error "Failed to estimate the measurement overhead."
+            overhead=(--overhead "$REPORT_DIR/$lang/overhead.csv")
+        fi
+
+        $REPORT_PYTHON "$SCRIPTS_DIR/compile.py" "${rapl_csvs[@]}" "${overhead[@]}" || error "Failed to compile rapl measurements."
 
         if $REPORT_AVERAGE; then
             $REPORT_PYTHON "$SCRIPTS_DIR/average.py" \
@@ -0,0 +1,260 @@
+#!/bin/bash
+
+SCALE_COUNT=10
+SCALE_SKIP=0
+SCALE_DIR="."
+SCALE_LANGS=()
+SCALE_BENCHS=()
+SCALE_THREADS=()
+SCALE_BACKEND="native"
+SCALE_RUNTIME=""
+SCALE_PINNING=""
+SCALE_STOP=false
+SCALE_PYTHON="python"
+
+scale_description() {
+    echo "Measures Java benchmarks at 1, 2, 4 ... NCPU threads"
+}
+
+scale_help() {
+    cat << HELP
+Usage:
+    $NAME scale [DIR] [OPTIONS]
+
+DIR:
+    The base directory path with the language dirs to measure. Default current dir
+
+    Each benchmark is measured once per thread count with the "warmup" config. The
+    measurements are kept in DIR/../scaling/<language>/<benchmark>/<threads> and
+    summarized in DIR/../scaling/scaling.csv with the time, package energy, speedup
+    and parallel efficiency of every thread count.
+
+Options:
+    -l, --lang    <languages>  Comma-separated list of languages. Default takes all java_* dirs under DIR
+    -b, --bench   <benchmarks> Comma-separated list of benchmarks. Default takes all dirs under LANGUAGES
+    -t, --threads <threads>    Comma-separated list of thread counts. Default 1, 2, 4 ... up to NCPU
+    -c, --count   <count>      Number of measurement repetitions per thread count. Default 10
+    -s, --skip    <count>      Skips the first <count> repetitions when summarizing. Default 0
+        --stop                 Stop after a failed measurement
+        --backend <backend>    Energy backend of the Java harness, "native", "msr" or "powercap". Default native
+        --runtime <runtime>    Threads of parallel Java benchmarks, "fresh", "platform", "virtual",
+                               "forkjoin" or "stealing". Default fresh
+        --pinning <policy>     Pin the worker threads to CPUs, "compact", "scatter", "physical" or "nosmt".
+                               Default unpinned
+    -h, --help                 Show this help message
+
+HELP
+}
+
+# Prints 1, 2, 4 ... up to and including the number of CPUs
+scale_default_threads() {
+    local ncpu=$(nproc)
+    local threads
+    for (( threads = 1; threads < ncpu; threads *= 2 )); do
+        echo "$threads"
+    done
+    echo "$ncpu"
+}
+
+scale_failed_to() {
+    if $SCALE_STOP; then
+        error "Failed to $1."
+    else
+        warning "Failed to $1."
+    fi
+}
+
+scale_measure() {
+    local threads="$1"
+    local results_dir="$2"
+    local proc_environment="env LD_LIBRARY_PATH=$LIB_DIR:LD_LIBRARY_PATH ENERGY_BACKEND=$SCALE_BACKEND THREADS=$threads"
+    if [[ -n "$SCALE_RUNTIME" ]]; then
+        proc_environment="$proc_environment RUNTIME=$SCALE_RUNTIME"
+    fi
+    if [[ -n "$SCALE_PINNING" ]]; then
+        proc_environment="$proc_environment AFFINITY=$SCALE_PINNING"
+    fi
+
+    if ! eval "$proc_environment RAPL_ITERATIONS=$SCALE_COUNT make measure > output.txt"; then
+        rm -f output.txt digest.txt nanotime.csv sockets.csv
+        scale_failed_to "measure with $threads threads"; return 1
+    fi
+
+    local measurement=( $(find . -maxdepth 1 -type f -name "Intel_*.csv" -o -name "AMD_*.csv" -o -name "Powercap_*.csv") )
+    if [[ ! -f "$measurement" ]]; then
+        rm -f output.txt digest.txt nanotime.csv sockets.csv
+        scale_failed_to "measure with $threads threads"; return 1
+    fi
+
+    if ! MEASURE_COUNT=$SCALE_COUNT measure_verify "warmup"; then
+        rm -f "$measurement" output.txt digest.txt nanotime.csv sockets.csv
+        scale_failed_to "verify with $threads threads"; return 1
+    fi
+    rm -f output.txt digest.txt
+
+    rm -rf "$results_dir"
+    mkdir -p "$results_dir"
+    mv "$measurement" "$results_dir"
+    for extra in nanotime.csv sockets.csv; do
+        if [[ -f "$extra" ]]; then
+            mv "$extra" "$results_dir"
+        fi
+    done
+}
+
+scale_main() {
+    if [[ $EUID -ne 0 ]]; then
+        error "Scale requires root privileges."
+    fi
+
+    local options=$(getopt -o l:b:t:c:s: --long lang:,bench:,threads:,count:,skip:,stop,backend:,runtime:,pinning: -- "$@")
+    eval set -- "$options"
+
+    while true; do
+        case "$1" in
+            -l|--lang)
+                IFS="," read -r -a SCALE_LANGS <<< "$2"
+                shift
+                ;;
+            -b|--bench)
+                IFS="," read -r -a SCALE_BENCHS <<< "$2"
+                shift
+                ;;
+            -t|--threads)
+                IFS="," read -r -a SCALE_THREADS <<< "$2"
+                shift
+                ;;
+            -c|--count)
+                SCALE_COUNT="$2"
+                shift
+                ;;
+            -s|--skip)
+                SCALE_SKIP="$2"
+                shift
+                ;;
+            --stop)
+                SCALE_STOP=true
+                ;;
+            --backend)
+                SCALE_BACKEND="$2"
+                shift
+                ;;
+            --runtime)
+                SCALE_RUNTIME="$2"
+                shift
+                ;;
+            --pinning)
+                SCALE_PINNING="$2"
+                shift
+                ;;
+            --)
+                shift
+                break
+                ;;
+            *)
+                error "\"$1\" is not a known option. See \"$NAME scale --help\"."
+                ;;
+        esac
+        shift
+    done
+
+    if [[ ! -z "$1" ]]; then
+        SCALE_DIR="$1"
+    fi
+
+    if [[ ! -d "$SCALE_DIR" ]]; then
+        error "Specified base directory $SCALE_DIR does not exist."
+    fi
+
+    if command -v python3 &>/dev/null; then
+        SCALE_PYTHON="python3"
+    elif ! command -v python &>/dev/null; then
+        error "\"python\" is not installed."
+    fi
+
+    if [[ "$SCALE_BACKEND" != "powercap" ]] && ! modprobe msr; then
+        error "Failed to load \"msr\" kernel module. Ensure it is available and try again."
+    fi
+
+    if [[ ${#SCALE_THREADS[@]} -eq 0 ]]; then
+        SCALE_THREADS=($(scale_default_threads))
+    fi
+
+    if [[ ${#SCALE_LANGS[@]} -eq 0 ]]; then
+        SCALE_LANGS=($(find "$SCALE_DIR" -mindepth 1 -maxdepth 1 -type d -name "java_*" -exec basename {} \; | sort))
+        if [[ ${#SCALE_LANGS[@]} -eq 0 ]]; then
+            error "No java_* language dirs found in \"$SCALE_DIR\"."
+        fi
+    fi
+
+    if [[ ${#SCALE_BENCHS[@]} -eq 0 ]]; then
+        declare -A BENCHMARK_SET
+
+        for lang in "${SCALE_LANGS[@]}"; do
+            if [[ -d "$SCALE_DIR/$lang" ]]; then
+                for benchmark in $(find "$SCALE_DIR/$lang" -mindepth 1 -maxdepth 1 -type d -exec basename {} \; | sort); do
+                    BENCHMARK_SET["$benchmark"]=1
+                done
+            fi
+        done
+
+        SCALE_BENCHS=($(printf "%s\n" "${!BENCHMARK_SET[@]}" | sort))
+
+        if [[ ${#SCALE_BENCHS[@]} -eq 0 ]]; then
+            error "No benchmarks found under any language directory."
+        fi
+    fi
+
+    pushd "$SCALE_DIR" >/dev/null
+
+    local scaling_dir="../scaling"
+    local rapl_csvs=()
+
+    for lang in "${SCALE_LANGS[@]}"; do
+        for bench in "${SCALE_BENCHS[@]}"; do
+            local bench_dir="$lang/$bench"
+            if [[ ! -d "$bench_dir" ]]; then
+                continue
+            fi
+
+            if [[ ! -f "$bench_dir/expected.txt" && ! -f "$bench_dir/expected.md5" ]]; then
+                warning "Missing required 'expected.txt' or 'expected.md5' file in "$bench_dir". Skipping."
+                continue
+            fi
+
+            pushd "$bench_dir" >/dev/null
+
+            if ! make clean >/dev/null; then
+                scale_failed_to "clean"; popd >/dev/null; continue
+            fi
+
+            if ! make all >/dev/null; then
+                scale_failed_to "build"; popd >/dev/null; continue
+            fi
+
+            for threads in "${SCALE_THREADS[@]}"; do
+                info "Measuring $lang $bench with $threads threads.\n"
+                scale_measure "$threads" "../../$scaling_dir/$bench_dir/$threads"
+            done
+
+            popd >/dev/null
+
+            for threads in "${SCALE_THREADS[@]}"; do
+                while IFS= read -r file; do
+                    rapl_csvs+=("$file")
+                done < <(find "$scaling_dir/$bench_dir/$threads" -maxdepth 1 -type f \( -name "Intel_*.csv" -o -name "AMD_*.csv" -o -name "Powercap_*.csv" \) 2>/dev/null)
+            done
+        done
+    done
+
+    if [[ ${#rapl_csvs[@]} -eq 0 ]]; then
+        error "No successful measurements to summarize."
+    fi
+
+    $SCALE_PYTHON "$SCRIPTS_DIR/scaling.py" "${rapl_csvs[@]}" \
+        --skip "$SCALE_SKIP" \
+        --output "$scaling_dir/scaling.csv" \
+        || error "Failed to summarize the scaling measurements."
+
+    popd >/dev/null
+}
@@ -0,0 +1,226 @@
+package energy;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Pins worker threads to CPUs with {@code sched_setaffinity}, placed by the
+ * policy chosen once with {@code -Dbench.affinity}:
+ * <ul>
+ *   <li>{@code none} (default) leaves the threads to the scheduler</li>
+ *   <li>{@code compact} fills every SMT sibling of a core before the next
+ *       core, and every core of a package before the next package</li>
+ *   <li>{@code scatter} alternates packages and takes one sibling of every
+ *       core before any second sibling</li>
+ *   <li>{@code physical} pins each worker to all siblings of one physical
+ *       core, one worker per core</li>
+ *   <li>{@code nosmt} pins each worker to the first sibling of one physical
+ *       core, leaving the other siblings idle</li>
+ * </ul>
+ *
+ * <p>The policy turns the topology into a list of slots and worker {@code n}
+ * is pinned to slot {@code n} modulo their number. Only the CPUs the process
+ * may run on at startup are used, so it composes with {@code taskset}.
+ */
+final class Affinity {
+    enum Policy {
+        NONE, COMPACT, SCATTER, PHYSICAL, NOSMT;
+
+        static Policy of(String name) {
+            return switch (name) {
+                case "none" -> NONE;
+                case "compact" -> COMPACT;
+                case "scatter" -> SCATTER;
+                case "physical" -> PHYSICAL;
+                case "nosmt" -> NOSMT;
+                default -> throw new IllegalArgumentException("Unknown bench.affinity \"" + name + "\"");
+            };
+        }
+    }
+
+    static final Policy POLICY = Policy.of(System.getProperty("bench.affinity", "none"));
+
+    private static final ThreadLocal<Integer> SLOT = ThreadLocal.withInitial(() -> -1);
+
+    private Affinity() {
+    }
+
+    static boolean enabled() {
+        return POLICY != Policy.NONE;
+    }
+
+    /** Pins the calling thread to the slot of worker {@code worker}. */
+    static void pin(int worker) {
+        List<BitSet> slots = Slots.SLOTS;
+        int slot = Math.floorMod(worker, slots.size());
+        Native.setAffinity(slots.get(slot));
+        SLOT.set(slot);
+    }
+
+    /** The slot the calling thread is pinned to, or -1 when it is not. */
+    static int slot() {
+        return SLOT.get();
+    }
+
+    /** The slots of the selected policy. */
+    static List<BitSet> slots() {
+        return Slots.SLOTS;
+    }
+
+    /** The topology the slots were derived from. */
+    static Topology topology() {
+        return Slots.TOPOLOGY;
+    }
+
+    /** The CPUs each worker is pinned to, in worker order. */
+    static List<BitSet> slots(Policy policy, Topology topology) {
+        List<BitSet> slots = new ArrayList<>();
+        switch (policy) {
+            case NONE -> {
+            }
+            case COMPACT -> {
+                for (Topology.Cpu cpu : topology.cpus) {
+                    slots.add(cpus(cpu.id()));
+                }
+            }
+            case SCATTER -> {
+                // One list per package ordered by sibling then core, dealt out in turn
+                List<List<Topology.Cpu>> packages = new ArrayList<>();
+                for (Topology.Cpu cpu : topology.cpus) {
+                    if (packages.isEmpty() || packages.getLast().getFirst().pkg() != cpu.pkg()) {
+                        packages.add(new ArrayList<>());
+                    }
+                    packages.getLast().add(cpu);
+                }
+                for (List<Topology.Cpu> cpus : packages) {
+                    cpus.sort((a, b) -> a.thread() != b.thread()
+                            ? Integer.compare(a.thread(), b.thread())
+                            : Integer.compare(a.core(), b.core()));
+                }
+                for (int i = 0; slots.size() < topology.cpus.size(); i++) {
+                    for (List<Topology.Cpu> cpus : packages) {
+                        if (i < cpus.size()) {
+                            slots.add(cpus(cpus.get(i).id()));
+                        }
+                    }
+                }
+            }
+            case PHYSICAL -> {
+                for (Topology.Cpu cpu : topology.cpus) {
+                    if (cpu.thread() == 0) {
+                        slots.add(new BitSet());
+                    }
+                    slots.getLast().set(cpu.id());
+                }
+            }
+            case NOSMT -> {
+                for (Topology.Cpu cpu : topology.cpus) {
+                    if (cpu.thread() == 0) {
+                        slots.add(cpus(cpu.id()));
+                    }
+                }
+            }
+        }
+        return List.copyOf(slots);
+    }
+
+    private static BitSet cpus(int cpu) {
+        BitSet cpus = new BitSet();
+        cpus.set(cpu);
+        return cpus;
+    }
+
+    /** Slots of the selected policy, computed on first use. */
+    private static final class Slots {
+        static final Topology TOPOLOGY = Topology.read(Native.getAffinity());
+        static final List<BitSet> SLOTS = slots(POLICY, TOPOLOGY);
+
+        static {
+            if (SLOTS.isEmpty()) {
+                throw new IllegalStateException("No CPUs to pin bench.affinity=" + POLICY.name().toLowerCase() + " workers to");
+            }
+        }
+    }
+
+    /**
+     * Downcalls into libc. A {@code pid} of 0 makes both calls act on the
+     * calling thread only, like {@code pthread_setaffinity_np}.
+     */
+    private static final class Native {
+        private static final StructLayout CALL_STATE = Linker.Option.captureStateLayout();
+        private static final long ERRNO = CALL_STATE.byteOffset(MemoryLayout.PathElement.groupElement("errno"));
+        private static final long MASK_BYTES = maskBytes();
+
+        private static final MethodHandle SCHED_SETAFFINITY;
+        private static final MethodHandle SCHED_GETAFFINITY;
+
+        static {
+            Linker linker = Linker.nativeLinker();
+            FunctionDescriptor descriptor = FunctionDescriptor.of(
+                    ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_LONG, ValueLayout.ADDRESS);
+            Linker.Option errno = Linker.Option.captureCallState("errno");
+
+            SCHED_SETAFFINITY = linker.downcallHandle(
+                    linker.defaultLookup().find("sched_setaffinity").orElseThrow(), descriptor, errno);
+            SCHED_GETAFFINITY = linker.downcallHandle(
+                    linker.defaultLookup().find("sched_getaffinity").orElseThrow(), descriptor, errno);
+        }
+
+        static void setAffinity(BitSet cpus) {
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment state = arena.allocate(CALL_STATE);
+                MemorySegment mask = arena.allocate(MASK_BYTES);
+                long[] words = cpus.toLongArray();
+                MemorySegment.copy(words, 0, mask, ValueLayout.JAVA_LONG, 0, words.length);
+
+                if ((int) SCHED_SETAFFINITY.invokeExact(state, 0, MASK_BYTES, mask) != 0) {
+                    throw new IllegalStateException("sched_setaffinity to CPUs " + cpus + " failed with errno "
+                            + state.get(ValueLayout.JAVA_INT, ERRNO));
+                }
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        static BitSet getAffinity() {
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment state = arena.allocate(CALL_STATE);
+                MemorySegment mask = arena.allocate(MASK_BYTES);
+
+                if ((int) SCHED_GETAFFINITY.invokeExact(state, 0, MASK_BYTES, mask) != 0) {
+                    throw new IllegalStateException("sched_getaffinity failed with errno "
+                            + state.get(ValueLayout.JAVA_INT, ERRNO));
+                }
+                return BitSet.valueOf(mask.toArray(ValueLayout.JAVA_LONG));
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /** A {@code cpu_set_t} large enough for every CPU the kernel supports. */
+        private static long maskBytes() {
+            int cpus = 1024;
+            try {
+                cpus = Math.max(cpus, Integer.parseInt(Files.readString(Topology.SYSFS.resolve("kernel_max")).trim()) + 1);
+            } catch (IOException | NumberFormatException e) {
+                // Keep the 1024 CPUs of glibc's cpu_set_t
+            }
+            return (cpus + 63) / 64 * 8L;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package energy;
+
+/**
+ * Source of the RAPL windows behind {@link Rapl}.
+ *
+ * <p>Every backend follows the protocol of {@code start_rapl}/{@code stop_rapl}
+ * in {@code rapl.rs}: {@link #start()} returns 0 once {@code RAPL_ITERATIONS}
+ * windows have been measured, and each {@link #stop()} records one row.
+ */
+interface Backend {
+    int start() throws Throwable;
+
+    void stop() throws Throwable;
+
+    /** Selects a backend by the value of the {@code energy.backend} property. */
+    static Backend of(String name) {
+        return switch (name) {
+            case "native" -> new NativeBackend();
+            case "msr" -> new MsrBackend();
+            case "powercap" -> new PowercapBackend();
+            default -> throw new IllegalArgumentException("Unknown energy backend \"" + name + "\"");
+        };
+    }
+}
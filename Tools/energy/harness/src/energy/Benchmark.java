@@ -0,0 +1,12 @@
+package energy;
+
+/**
+ * A single measured iteration of a benchmark.
+ *
+ * <p>Implementations are handed to {@link Harness#run(Benchmark)}, which calls
+ * {@link #run()} once per RAPL window.
+ */
+@FunctionalInterface
+public interface Benchmark {
+    void run() throws Throwable;
+}
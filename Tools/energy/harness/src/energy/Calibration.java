@@ -0,0 +1,100 @@
+package energy;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Measures what the measurement loop of {@link Harness} itself costs:
+ *
+ * <pre>{@code
+ * RAPL_ITERATIONS=2000 java ... -cp harness.jar energy.Calibration
+ * }</pre>
+ *
+ * <p>{@code RAPL_ITERATIONS} is split between two loops, the first with an
+ * empty benchmark and the second with a spin kernel of
+ * {@code -Denergy.calibration.spin} steps of an xorshift generator,
+ * 1000000 by default. Both go through the configured backend and
+ * listeners like any benchmark, so the RAPL CSV gets one row per window and
+ * the rows of the empty loop are the energy and time the windows themselves
+ * add to every measurement.
+ *
+ * <p>For each loop a row of
+ * {@code Spin,Windows,LoopNanos,LoopPkgMicrojoules,LoopDramMicrojoules} is
+ * appended to {@value #CALIBRATION_CSV}: the time and energy per window of
+ * the whole loop, including the work between windows such as writing the
+ * RAPL rows, read from a {@link Meter} or -1 without one.
+ */
+public final class Calibration {
+    static final String CALIBRATION_CSV = "calibration.csv";
+
+    private static final long SPIN = Long.getLong("energy.calibration.spin", 1_000_000);
+
+    /** The result of the spin kernel, kept so it is not optimized away. */
+    static long sink;
+
+    private Calibration() {
+    }
+
+    public static void main(String[] args) throws Throwable {
+        if (Harness.iterations() < 2 || Harness.iterations() % 2 != 0) {
+            throw new IllegalArgumentException("RAPL_ITERATIONS=" + Harness.iterations()
+                    + " must be even, half of it for each loop");
+        }
+        int windows = Harness.iterations() / 2;
+        Harness.limitWindows(windows);
+
+        Meter meter;
+        try {
+            meter = Meter.open();
+        } catch (IOException | RuntimeException e) {
+            meter = null;
+        }
+
+        CsvLog log = new CsvLog(Path.of(CALIBRATION_CSV),
+                "Spin", "Windows", "LoopNanos", "LoopPkgMicrojoules", "LoopDramMicrojoules");
+        log.add(loop(() -> {}, 0, windows, meter));
+        log.add(loop(Calibration::spin, SPIN, windows, meter));
+        log.flush();
+        if (meter != null) {
+            meter.close();
+        }
+
+        // The final start of the RAPL protocol, which closes the CSV
+        if (Rapl.start() != 0) {
+            throw new IllegalStateException("The RAPL backend expects more windows than the calibration ran");
+        }
+    }
+
+    private static long[] loop(Benchmark benchmark, long spin, int windows, Meter meter) throws Throwable {
+        double[] start = new double[Meter.DOMAINS];
+        double[] end = new double[Meter.DOMAINS];
+        if (meter != null) {
+            meter.read(start);
+        }
+        long nanos = System.nanoTime();
+        Harness.run(benchmark);
+        nanos = System.nanoTime() - nanos;
+        if (meter != null) {
+            meter.read(end);
+        }
+
+        return new long[] {
+            spin,
+            windows,
+            nanos / windows,
+            meter == null ? -1 : Math.round((end[Meter.PKG] - start[Meter.PKG]) * 1e6 / windows),
+            meter == null ? -1 : Math.round((end[Meter.DRAM] - start[Meter.DRAM]) * 1e6 / windows),
+        };
+    }
+
+    private static void spin() {
+        // C2 shortcuts a loop of linear congruential steps, not these
+        long x = sink | 1;
+        for (long i = 0; i < SPIN; i++) {
+            x ^= x << 13;
+            x ^= x >>> 7;
+            x ^= x << 17;
+        }
+        sink = x;
+    }
+}
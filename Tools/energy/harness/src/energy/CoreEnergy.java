@@ -0,0 +1,227 @@
+package energy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Attributes the energy of the cores the workers are pinned to, read from
+ * the AMD core energy register {@code 0xC001029A} of each core around every
+ * window, to the workers and to the types of the tasks they ran.
+ *
+ * <p>Enabled with {@code -Denergy.cores=true} together with
+ * {@code -Dbench.affinity}. Each worker slot of {@link Affinity} gets the
+ * energy of its core, split evenly between slots sharing a core. The energy
+ * of a slot is split between the task types by the time its threads spent
+ * running them, see {@link Workers#task(String, Runnable)}, and the rest of
+ * the window is attributed to {@code idle}.
+ *
+ * <p>After the last window {@code Iteration,Worker,Cpu,Microjoules} rows are
+ * appended to {@value #CORES_CSV} and
+ * {@code Iteration,Task,Count,Nanos,Microjoules} rows to {@value #TASKS_CSV}.
+ * {@code -Denergy.cores.msr=<dir>} reads {@code <dir>/<cpu>/msr} instead of
+ * {@code /dev/cpu/<cpu>/msr}, e.g. fake files in tests, and
+ * {@code -Denergy.cpu=AMD} skips the vendor check.
+ */
+final class CoreEnergy implements IterationListener {
+    static final String CORES_CSV = "cores.csv";
+    static final String TASKS_CSV = "tasks.csv";
+    static final long CORE_ENERGY = 0xC001029AL;
+    static final String IDLE = "idle";
+
+    private static final boolean ENABLED = Boolean.getBoolean("energy.cores");
+
+    /** Time the threads of each slot spent running each task type. */
+    private static final Map<String, TaskTimes> TASKS = new ConcurrentHashMap<>();
+
+    private record TaskTimes(AtomicLongArray count, AtomicLongArray nanos) {
+        TaskTimes(int slots) {
+            this(new AtomicLongArray(slots), new AtomicLongArray(slots));
+        }
+    }
+
+    private final int slots;
+    private final int[] cpus;
+    private final int[] cores;
+    private final int[] sharing;
+    private final Msr[] msrs;
+    private final double microjoulesPerUnit;
+
+    private final long[] start;
+    private final long[] end;
+    private final double[] microjoules;
+    private final double[] busy;
+    private long startNanos;
+
+    private final CsvLog log = new CsvLog(Path.of(CORES_CSV), "Iteration", "Worker", "Cpu", "Microjoules");
+    private final long[] row = new long[4];
+    private final StringBuilder tasks = new StringBuilder();
+
+    CoreEnergy() {
+        if (!Affinity.enabled()) {
+            throw new IllegalStateException("energy.cores needs the workers pinned with bench.affinity");
+        }
+        if (MsrBackend.Vendor.detect() != MsrBackend.Vendor.AMD) {
+            throw new IllegalStateException("energy.cores needs the core energy register of AMD CPUs");
+        }
+
+        List<BitSet> slots = Affinity.slots();
+        this.slots = Math.min(Workers.threads(), slots.size());
+        this.cpus = new int[this.slots];
+        this.cores = new int[this.slots];
+        this.sharing = new int[this.slots];
+
+        // One register per physical core, read on the first CPU of the first slot using it
+        Map<Integer, Integer> coreOf = new HashMap<>();
+        for (Topology.Cpu cpu : Affinity.topology().cpus) {
+            coreOf.put(cpu.id(), cpu.core());
+        }
+        Map<Integer, Integer> indexOf = new HashMap<>();
+        List<Integer> readCpus = new ArrayList<>();
+        for (int slot = 0; slot < this.slots; slot++) {
+            cpus[slot] = slots.get(slot).nextSetBit(0);
+            int core = coreOf.get(cpus[slot]);
+            if (!indexOf.containsKey(core)) {
+                indexOf.put(core, readCpus.size());
+                readCpus.add(cpus[slot]);
+            }
+            cores[slot] = indexOf.get(core);
+        }
+        for (int slot = 0; slot < this.slots; slot++) {
+            for (int other = 0; other < this.slots; other++) {
+                if (cores[other] == cores[slot]) {
+                    sharing[slot]++;
+                }
+            }
+        }
+
+        Path dir = Path.of(System.getProperty("energy.cores.msr", "/dev/cpu"));
+        this.msrs = new Msr[readCpus.size()];
+        try {
+            for (int i = 0; i < msrs.length; i++) {
+                msrs[i] = new Msr(dir.resolve(Integer.toString(readCpus.get(i))).resolve("msr"));
+            }
+            this.microjoulesPerUnit = 1e6 * Math.pow(0.5, (msrs[0].read(MsrBackend.Vendor.AMD.powerUnit) >> 8) & 0x1F);
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to open the core energy registers", e);
+        }
+        this.start = new long[msrs.length];
+        this.end = new long[msrs.length];
+        this.microjoules = new double[this.slots];
+        this.busy = new double[this.slots];
+    }
+
+    static boolean enabled() {
+        return ENABLED;
+    }
+
+    /** Adds {@code nanos} of a task of {@code type} to the slot of the calling thread. */
+    static void record(String type, long nanos) {
+        int slot = Affinity.slot();
+        if (slot < 0) {
+            return;
+        }
+        TaskTimes times = TASKS.computeIfAbsent(type, t -> new TaskTimes(Affinity.slots().size()));
+        times.count().incrementAndGet(slot);
+        times.nanos().addAndGet(slot, nanos);
+    }
+
+    @Override
+    public void beforeIteration() {
+        read(start);
+        startNanos = System.nanoTime();
+    }
+
+    @Override
+    public void afterIteration(int iteration) {
+        long window = System.nanoTime() - startNanos;
+        read(end);
+
+        for (int slot = 0; slot < slots; slot++) {
+            int core = cores[slot];
+            microjoules[slot] = MsrBackend.unwrap(start[core], end[core]) * microjoulesPerUnit / sharing[slot];
+
+            row[0] = iteration;
+            row[1] = slot;
+            row[2] = cpus[slot];
+            row[3] = Math.round(microjoules[slot]);
+            log.add(row);
+        }
+
+        // Each slot's energy goes to its task types by their share of the window
+        Arrays.fill(busy, 0);
+        for (Map.Entry<String, TaskTimes> entry : TASKS.entrySet()) {
+            TaskTimes times = entry.getValue();
+            long count = 0;
+            long nanos = 0;
+            double energy = 0;
+            for (int slot = 0; slot < slots; slot++) {
+                long slotNanos = times.nanos().getAndSet(slot, 0);
+                count += times.count().getAndSet(slot, 0);
+                nanos += slotNanos;
+                busy[slot] += slotNanos;
+                energy += microjoules[slot] * Math.min((double) slotNanos / window, 1);
+            }
+            if (count > 0) {
+                addTask(iteration, entry.getKey(), count, nanos, energy);
+            }
+        }
+
+        long idleNanos = 0;
+        double idle = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            double share = Math.max(1 - busy[slot] / window, 0);
+            idleNanos += Math.round(share * window);
+            idle += microjoules[slot] * share;
+        }
+        addTask(iteration, IDLE, 0, idleNanos, idle);
+    }
+
+    @Override
+    public void finish() {
+        log.flush();
+        try (Writer writer = Files.newBufferedWriter(Path.of(TASKS_CSV), StandardCharsets.US_ASCII,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (Files.size(Path.of(TASKS_CSV)) == 0) {
+                writer.write("Iteration,Task,Count,Nanos,Microjoules\n");
+            }
+            writer.append(tasks);
+            for (Msr msr : msrs) {
+                msr.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        tasks.setLength(0);
+    }
+
+    private void addTask(int iteration, String type, long count, long nanos, double microjoules) {
+        tasks.append(iteration).append(',')
+                .append(type.replace(',', ' ')).append(',')
+                .append(count).append(',')
+                .append(nanos).append(',')
+                .append(Math.round(microjoules)).append('\n');
+    }
+
+    private void read(long[] values) {
+        try {
+            for (int i = 0; i < msrs.length; i++) {
+                values[i] = msrs[i].read(CORE_ENERGY) & MsrBackend.COUNTER_MASK;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package energy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Rows of {@code long} columns kept in memory and appended to a CSV file on
+ * {@link #flush()}, so nothing is written while a window is being measured.
+ *
+ * <p>The header is only written when the file is new or empty, matching
+ * {@code write_to_csv} in {@code rapl.rs}.
+ */
+final class CsvLog {
+    private final Path path;
+    private final String[] columns;
+    private long[] values;
+    private int rows = 0;
+
+    CsvLog(Path path, String... columns) {
+        this.path = path;
+        this.columns = columns;
+        this.values = new long[columns.length * Math.max(Harness.iterations(), 1)];
+    }
+
+    /** Copies the first {@code columns.length} values of {@code row}. */
+    void add(long[] row) {
+        int width = columns.length;
+        if ((rows + 1) * width > values.length) {
+            values = Arrays.copyOf(values, 2 * values.length);
+        }
+        System.arraycopy(row, 0, values, rows * width, width);
+        rows++;
+    }
+
+    void flush() {
+        if (rows == 0) {
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.US_ASCII,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (Files.size(path) == 0) {
+                writer.write(String.join(",", columns));
+                writer.write('\n');
+            }
+            int width = columns.length;
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < width; column++) {
+                    if (column > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(Long.toString(values[row * width + column]));
+                }
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        rows = 0;
+    }
+}
@@ -0,0 +1,175 @@
+package energy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Named regions of a benchmark whose time and energy are accumulated per
+ * iteration, enabled with {@code -Denergy.regions=true}:
+ *
+ * <pre>{@code
+ * try (var r = Energy.region("count")) {
+ *     counts = pool.invokeAll(tasks);
+ * }
+ * }</pre>
+ *
+ * <p>Regions nest per thread and are keyed by their path, e.g.
+ * {@code write/frequencies}, so a region includes the regions nested in it.
+ * The energy is read from one shared {@link Meter} when a region opens and
+ * closes. It covers the whole package, so regions running at the same time on
+ * different threads overlap, and regions much shorter than the roughly 1 ms
+ * the RAPL counters take to update are imprecise.
+ *
+ * <p>{@link RegionLog} writes the regions closed in each window to
+ * {@value RegionLog#REGIONS_CSV}. Without the property {@link #region(String)}
+ * returns a region that does nothing. Under {@code -Denergy.sampler=true}
+ * regions only time themselves, unless both are enabled, and are handed to
+ * {@link Sampler} as the phase markers of its timeline.
+ */
+public final class Energy {
+    private static final boolean ENABLED = Boolean.getBoolean("energy.regions");
+    private static final boolean MARKED = Sampler.enabled();
+
+    private static final Region NONE = new Region(null, null);
+    private static final ThreadLocal<Region> OPEN = new ThreadLocal<>();
+    private static final Map<String, Totals> TOTALS = new ConcurrentSkipListMap<>();
+
+    private Energy() {
+    }
+
+    static boolean enabled() {
+        return ENABLED;
+    }
+
+    /** Opens a region named {@code name} inside the innermost open region of the calling thread. */
+    public static Region region(String name) {
+        if (!ENABLED && !MARKED) {
+            return NONE;
+        }
+        Region parent = OPEN.get();
+        Region region = new Region(parent, parent == null ? name : parent.path + "/" + name);
+        OPEN.set(region);
+        region.start();
+        return region;
+    }
+
+    /**
+     * Moves the totals of every region closed since the last call into
+     * {@code row}, as {@code Count,Nanos} and the microjoules of each
+     * {@link Meter} domain, handing each to {@code consumer}.
+     */
+    static void drain(RowConsumer consumer) {
+        long[] row = new long[2 + Meter.DOMAINS];
+        for (Map.Entry<String, Totals> entry : TOTALS.entrySet()) {
+            if (entry.getValue().drainTo(row)) {
+                consumer.accept(entry.getKey(), row);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface RowConsumer {
+        void accept(String path, long[] row);
+    }
+
+    /** A region open on the thread that created it until {@link #close()}. */
+    public static final class Region implements AutoCloseable {
+        private final Region parent;
+        private final String path;
+        private final double[] joules = new double[Meter.DOMAINS];
+        private long start;
+
+        private Region(Region parent, String path) {
+            this.parent = parent;
+            this.path = path;
+        }
+
+        private void start() {
+            if (ENABLED) {
+                Shared.read(joules);
+            }
+            start = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            if (path == null) {
+                return;
+            }
+            long stop = System.nanoTime();
+            Region open = OPEN.get();
+            if (open != this) {
+                throw new IllegalStateException("Region " + path + " closed while "
+                        + (open == null ? "not open" : open.path + " is open inside it"));
+            }
+            OPEN.set(parent);
+            if (MARKED) {
+                Sampler.mark(path, start, stop);
+            }
+            if (!ENABLED) {
+                return;
+            }
+
+            double[] end = new double[Meter.DOMAINS];
+            Shared.read(end);
+            for (int domain = 0; domain < Meter.DOMAINS; domain++) {
+                end[domain] -= joules[domain];
+            }
+            TOTALS.computeIfAbsent(path, p -> new Totals()).add(stop - start, end);
+        }
+    }
+
+    private static final class Totals {
+        private long count;
+        private long nanos;
+        private final double[] joules = new double[Meter.DOMAINS];
+
+        synchronized void add(long nanos, double[] joules) {
+            this.count++;
+            this.nanos += nanos;
+            for (int domain = 0; domain < Meter.DOMAINS; domain++) {
+                this.joules[domain] += joules[domain];
+            }
+        }
+
+        synchronized boolean drainTo(long[] row) {
+            if (count == 0) {
+                return false;
+            }
+            row[0] = count;
+            row[1] = nanos;
+            for (int domain = 0; domain < Meter.DOMAINS; domain++) {
+                row[2 + domain] = Math.round(joules[domain] * 1e6);
+                joules[domain] = 0;
+            }
+            count = 0;
+            nanos = 0;
+            return true;
+        }
+    }
+
+    /** The meter of every thread, opened on first use and read under its lock. */
+    private static final class Shared {
+        private static final Meter METER;
+
+        static {
+            try {
+                METER = Meter.open();
+            } catch (IOException e) {
+                throw new UncheckedIOException("energy.regions needs an energy meter", e);
+            }
+        }
+
+        static void read(double[] joules) {
+            synchronized (METER) {
+                try {
+                    METER.read(joules);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package energy;
+
+import java.nio.file.Path;
+
+/**
+ * The measurement loop shared by every Java benchmark.
+ *
+ * <pre>{@code
+ * public static void main(String[] args) throws Throwable {
+ *     Harness.run(() -> run_benchmark(args));
+ * }
+ * }</pre>
+ *
+ * <p>Next to each RAPL window a {@link System#nanoTime()} window is taken
+ * around the benchmark itself. The windows are kept in memory while
+ * measuring and appended to {@value #NANOTIME_CSV} once the loop is done,
+ * so no I/O happens between iterations.
+ *
+ * <p>An {@link IterationListener} is called around every window. When the JVM
+ * ships JFR it commits an {@code energy.BenchmarkIteration} event per window
+ * under {@code -XX:StartFlightRecording}.
+ *
+ * <p>With {@code -Denergy.steady=true} the measured windows are preceded by
+ * unmeasured iterations until the benchmark is steady, see {@link SteadyState}.
+ * With {@code -Denergy.digest=true} the output of each iteration is reduced
+ * to its digest, see {@link OutputDigest}. {@link Suite} and
+ * {@link Calibration} run several loops in one process, each limited to its
+ * share of the windows. Under {@code -javaagent:harness.jar} the end of
+ * each window is reported to {@link StartupAgent}.
+ */
+public final class Harness {
+    static final String NANOTIME_CSV = "nanotime.csv";
+
+    private static int windows = Integer.MAX_VALUE;
+
+    private Harness() {
+    }
+
+    /** Stops every following loop after {@code windows} windows instead of when {@link Rapl#start()} returns 0. */
+    static void limitWindows(int windows) {
+        Harness.windows = windows;
+    }
+
+    public static void run(Benchmark benchmark) throws Throwable {
+        run(benchmark, () -> {});
+    }
+
+    /**
+     * Runs {@code benchmark} once per RAPL window, calling {@code cleanup}
+     * after each window is closed.
+     */
+    public static void run(Benchmark benchmark, Runnable cleanup) throws Throwable {
+        if (OutputDigest.enabled()) {
+            try (OutputDigest digest = OutputDigest.install()) {
+                measure(benchmark, () -> {
+                    digest.finish();
+                    cleanup.run();
+                });
+            }
+        } else {
+            measure(benchmark, cleanup);
+        }
+    }
+
+    private static void measure(Benchmark benchmark, Runnable cleanup) throws Throwable {
+        CsvLog nanotime = new CsvLog(Path.of(NANOTIME_CSV), "NanoStart", "NanoEnd");
+        IterationListener listener = IterationListener.load();
+        long[] window = new long[2];
+        int iteration = 0;
+
+        if (SteadyState.enabled()) {
+            SteadyState.fromProperties().warmUp(benchmark, cleanup);
+        }
+
+        listener.beforeIteration();
+        while (iteration < windows && Rapl.start() > 0) {
+            long start = System.nanoTime();
+            benchmark.run();
+            long end = System.nanoTime();
+            Rapl.stop();
+            StartupAgent.windowEnded();
+            listener.afterIteration(iteration++);
+
+            window[0] = start;
+            window[1] = end;
+            nanotime.add(window);
+            cleanup.run();
+            listener.beforeIteration();
+        }
+        nanotime.flush();
+        listener.finish();
+    }
+
+    /** Mirrors {@code RAPL_ITERATIONS} in {@code rapl.rs}, defaulting to 1. */
+    static int iterations() {
+        try {
+            return Integer.parseInt(System.getenv("RAPL_ITERATIONS"));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+}
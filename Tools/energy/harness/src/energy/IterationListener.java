@@ -0,0 +1,111 @@
+package energy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Called by {@link Harness} around every RAPL window, outside of it, so the
+ * work a listener does is not part of the measured energy.
+ *
+ * <p>{@link #beforeIteration()} is called before {@link Rapl#start()} and
+ * {@link #afterIteration(int)} after {@link Rapl#stop()}. The final
+ * {@link #beforeIteration()}, made before {@link Rapl#start()} returns 0,
+ * has no matching {@link #afterIteration(int)}. {@link #finish()} is called
+ * once the last window is closed.
+ */
+public interface IterationListener {
+    IterationListener NONE = new IterationListener() {
+        @Override
+        public void beforeIteration() {
+        }
+
+        @Override
+        public void afterIteration(int iteration) {
+        }
+    };
+
+    void beforeIteration();
+
+    /** {@code iteration} counts the measured windows from 0. */
+    void afterIteration(int iteration);
+
+    default void finish() {
+    }
+
+    /**
+     * The JFR listener of {@code energy.jfr} when it was built into the
+     * harness and the JVM ships {@code jdk.jfr}, the {@link CoreEnergy}
+     * listener under {@code -Denergy.cores}, the {@link JitStats} listener
+     * under {@code -Denergy.jit}, the {@link PerfCounters} listener under
+     * {@code -Denergy.perf}, the {@link RegionLog} listener under
+     * {@code -Denergy.regions}, the {@link Sampler} under
+     * {@code -Denergy.sampler}, the {@link StackProfiler} under
+     * {@code -Denergy.profile} and the method log of {@code energy.methods}
+     * under {@code -Denergy.methods} when it was built into the harness,
+     * otherwise {@link #NONE}.
+     */
+    static IterationListener load() {
+        List<IterationListener> listeners = new ArrayList<>();
+        try {
+            listeners.add((IterationListener) Class.forName("energy.jfr.JfrListener")
+                    .getDeclaredConstructor()
+                    .newInstance());
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Semeru or a harness built without energy.jfr
+        }
+        if (System.getProperty("energy.methods") != null) {
+            try {
+                listeners.add((IterationListener) Class.forName("energy.methods.MethodLog")
+                        .getDeclaredConstructor()
+                        .newInstance());
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // A harness built without energy.methods
+            }
+        }
+        if (CoreEnergy.enabled()) {
+            listeners.add(new CoreEnergy());
+        }
+        if (JitStats.enabled()) {
+            listeners.add(new JitStats());
+        }
+        if (PerfCounters.enabled()) {
+            listeners.add(new PerfCounters());
+        }
+        if (Energy.enabled()) {
+            listeners.add(new RegionLog());
+        }
+        if (Sampler.enabled()) {
+            listeners.add(new Sampler());
+        }
+        if (StackProfiler.enabled()) {
+            listeners.add(new StackProfiler());
+        }
+
+        return switch (listeners.size()) {
+            case 0 -> NONE;
+            case 1 -> listeners.getFirst();
+            default -> new IterationListener() {
+                @Override
+                public void beforeIteration() {
+                    for (IterationListener listener : listeners) {
+                        listener.beforeIteration();
+                    }
+                }
+
+                @Override
+                public void afterIteration(int iteration) {
+                    for (IterationListener listener : listeners) {
+                        listener.afterIteration(iteration);
+                    }
+                }
+
+                @Override
+                public void finish() {
+                    for (IterationListener listener : listeners) {
+                        listener.finish();
+                    }
+                }
+            };
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package energy;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Logs the JIT compilation time of every window and the code cache in use
+ * at its end to {@value #JIT_CSV}, enabled with {@code -Denergy.jit=true}.
+ *
+ * <p>The time comes from {@link CompilationMXBean} and is -1 when the JVM
+ * does not track it, e.g. under {@code -Xint}. The code cache is the sum of
+ * the non-heap pools holding compiled code, the {@code CodeHeap} segments
+ * or {@code CodeCache} of HotSpot and the {@code JIT code cache} of OpenJ9.
+ */
+final class JitStats implements IterationListener {
+    static final String JIT_CSV = "jit.csv";
+
+    private static final boolean ENABLED = Boolean.getBoolean("energy.jit");
+
+    private final CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+    private final boolean timed = compiler != null && compiler.isCompilationTimeMonitoringSupported();
+    private final List<MemoryPoolMXBean> codeCache = new ArrayList<>();
+
+    private final CsvLog log = new CsvLog(Path.of(JIT_CSV),
+            "Iteration", "CompilationMillis", "TotalCompilationMillis", "CodeCacheBytes");
+    private final long[] row = new long[4];
+    private long compiled;
+
+    JitStats() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            String name = pool.getName();
+            if (pool.getType() == MemoryType.NON_HEAP
+                    && (name.startsWith("CodeHeap") || name.equals("CodeCache") || name.equals("JIT code cache"))) {
+                codeCache.add(pool);
+            }
+        }
+    }
+
+    static boolean enabled() {
+        return ENABLED;
+    }
+
+    @Override
+    public void beforeIteration() {
+        compiled = timed ? compiler.getTotalCompilationTime() : -1;
+    }
+
+    @Override
+    public void afterIteration(int iteration) {
+        long total = timed ? compiler.getTotalCompilationTime() : -1;
+        long bytes = 0;
+        for (MemoryPoolMXBean pool : codeCache) {
+            bytes += pool.getUsage().getUsed();
+        }
+
+        row[0] = iteration;
+        row[1] = timed ? total - compiled : -1;
+        row[2] = total;
+        row[3] = bytes;
+        log.add(row);
+    }
+
+    @Override
+    public void finish() {
+        log.flush();
+    }
+}
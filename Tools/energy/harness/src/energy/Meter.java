@@ -0,0 +1,47 @@
+package energy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Cumulative energy counters read from Java, for tools that need joules
+ * rather than the CSV rows written by {@link Rapl}.
+ *
+ * <p>The domains follow the column order of {@code Intel_x.csv}. Domains the
+ * CPU does not expose read as 0. A meter must be read at least once per
+ * counter wraparound, i.e. every few minutes under load. Instances are not
+ * thread-safe; open one per reading thread.
+ */
+public interface Meter extends AutoCloseable {
+    int CORE = 0;
+    int UNCORE = 1;
+    int PKG = 2;
+    int DRAM = 3;
+    int DOMAINS = 4;
+
+    String[] NAMES = { "core", "uncore", "pkg", "dram" };
+
+    /** Fills {@code joules} with the energy counted by each domain since the meter was opened. */
+    void read(double[] joules) throws IOException;
+
+    @Override
+    void close() throws IOException;
+
+    /**
+     * Opens the meter named by {@code -Denergy.meter}, either {@code msr} or
+     * {@code powercap}. By default powercap is used when it is readable.
+     */
+    static Meter open() throws IOException {
+        String name = System.getProperty("energy.meter");
+        if (name == null) {
+            Path root = Path.of(System.getProperty("energy.powercap", "/sys/class/powercap"));
+            name = Files.isReadable(root.resolve("intel-rapl:0").resolve("energy_uj")) ? "powercap" : "msr";
+        }
+        return switch (name) {
+            case "msr" -> new MsrMeter();
+            case "powercap" -> new PowercapMeter();
+            default -> throw new IllegalArgumentException("Unknown energy meter \"" + name + "\"");
+        };
+    }
+}
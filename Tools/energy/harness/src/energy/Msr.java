@@ -0,0 +1,54 @@
+package energy;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Positional reads of a CPU's model specific registers, the Java counterpart
+ * of {@code read_msr} in {@code rapl.rs}.
+ *
+ * <p>Every read goes through the same off-heap segment, so sampling does not
+ * allocate. Instances are not thread-safe.
+ */
+final class Msr implements AutoCloseable {
+    private static final ValueLayout.OfLong REGISTER =
+            ValueLayout.JAVA_LONG.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private final FileChannel channel;
+    private final MemorySegment segment;
+    private final ByteBuffer buffer;
+
+    /** Opens {@code /dev/cpu/<cpu>/msr}. */
+    static Msr open(int cpu) throws IOException {
+        return new Msr(Path.of("/dev/cpu", Integer.toString(cpu), "msr"));
+    }
+
+    /** Opens any file laid out like the msr device, e.g. a fake one in tests. */
+    Msr(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.segment = Arena.ofAuto().allocate(REGISTER);
+        this.buffer = segment.asByteBuffer();
+    }
+
+    long read(long offset) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Short read of MSR 0x" + Long.toHexString(offset));
+            }
+        }
+        return segment.get(REGISTER, 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
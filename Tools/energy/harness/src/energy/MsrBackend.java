@@ -0,0 +1,124 @@
+package energy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads the RAPL energy status registers from Java instead of going through
+ * {@code librapl_interface}, writing the same {@code Intel_x.csv} or
+ * {@code AMD_x.csv} columns as {@code rapl.rs}.
+ *
+ * <p>The energy counters are 32 bits wide and wrap after a few minutes under
+ * load, so the end value of each window is unwrapped against its start value.
+ * A single window may therefore span at most one wraparound per domain.
+ *
+ * <p>{@code -Denergy.msr=<path>} reads another file laid out like
+ * {@code /dev/cpu/0/msr} and {@code -Denergy.cpu=Intel|AMD} skips the
+ * {@code /proc/cpuinfo} vendor lookup.
+ */
+final class MsrBackend implements Backend {
+    static final long COUNTER_MASK = 0xFFFFFFFFL;
+
+    enum Vendor {
+        INTEL("Intel", 0x606,
+                new long[] { 0x639, 0x641, 0x611, 0x619 },
+                new String[] { "PP0", "PP1", "Pkg", "Dram" },
+                new int[] { Meter.CORE, Meter.UNCORE, Meter.PKG, Meter.DRAM }),
+        AMD("AMD", 0xC0010299L,
+                new long[] { 0xC001029AL, 0xC001029BL },
+                new String[] { "Core", "Pkg" },
+                new int[] { Meter.CORE, Meter.PKG });
+
+        final String name;
+        final long powerUnit;
+        final long[] registers;
+        final String[] domains;
+        final int[] meterDomains;
+
+        Vendor(String name, long powerUnit, long[] registers, String[] domains, int[] meterDomains) {
+            this.name = name;
+            this.powerUnit = powerUnit;
+            this.registers = registers;
+            this.domains = domains;
+            this.meterDomains = meterDomains;
+        }
+
+        String[] columns() {
+            String[] columns = new String[2 + 2 * domains.length];
+            columns[0] = "TimeStart";
+            columns[1] = "TimeEnd";
+            for (int i = 0; i < domains.length; i++) {
+                columns[2 + 2 * i] = domains[i] + "Start";
+                columns[3 + 2 * i] = domains[i] + "End";
+            }
+            return columns;
+        }
+
+        static Vendor detect() {
+            String cpu = System.getProperty("energy.cpu");
+            if (cpu == null) {
+                try {
+                    cpu = Files.readString(Path.of("/proc/cpuinfo")).contains("AuthenticAMD") ? "AMD" : "Intel";
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return cpu.equalsIgnoreCase("AMD") ? AMD : INTEL;
+        }
+    }
+
+    private final Vendor vendor;
+    private final Msr msr;
+    private final CsvLog log;
+    private final int maxIterations = Harness.iterations() + 1;
+    private int iteration = 0;
+
+    private final long[] start;
+    private final long[] row;
+
+    MsrBackend() {
+        this.vendor = Vendor.detect();
+        try {
+            String path = System.getProperty("energy.msr");
+            this.msr = path == null ? Msr.open(0) : new Msr(Path.of(path));
+            long powerUnit = msr.read(vendor.powerUnit);
+            this.log = new CsvLog(Path.of(vendor.name + "_" + powerUnit + ".csv"), vendor.columns());
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to read RAPL power unit", e);
+        }
+        this.start = new long[vendor.registers.length];
+        this.row = new long[2 + 2 * vendor.registers.length];
+    }
+
+    @Override
+    public int start() throws IOException {
+        if (++iteration >= maxIterations) {
+            log.flush();
+            return 0;
+        }
+
+        row[0] = System.currentTimeMillis();
+        for (int i = 0; i < start.length; i++) {
+            start[i] = msr.read(vendor.registers[i]) & COUNTER_MASK;
+        }
+        return 1;
+    }
+
+    @Override
+    public void stop() throws IOException {
+        for (int i = 0; i < start.length; i++) {
+            long end = msr.read(vendor.registers[i]) & COUNTER_MASK;
+            row[2 + 2 * i] = start[i];
+            row[3 + 2 * i] = start[i] + unwrap(start[i], end);
+        }
+        row[1] = System.currentTimeMillis();
+        log.add(row);
+    }
+
+    /** Energy units counted from {@code start} to {@code end} on a 32-bit counter. */
+    static long unwrap(long start, long end) {
+        return (end - start) & COUNTER_MASK;
+    }
+}
@@ -0,0 +1,40 @@
+package energy;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/** A {@link Meter} over the RAPL registers of CPU 0, see {@link MsrBackend}. */
+final class MsrMeter implements Meter {
+    private final MsrBackend.Vendor vendor;
+    private final Msr msr;
+    private final double joulesPerUnit;
+    private final long[] last;
+    private final long[] total;
+
+    MsrMeter() throws IOException {
+        this.vendor = MsrBackend.Vendor.detect();
+        String path = System.getProperty("energy.msr");
+        this.msr = path == null ? Msr.open(0) : new Msr(Path.of(path));
+        this.joulesPerUnit = Math.pow(0.5, (msr.read(vendor.powerUnit) >> 8) & 0x1F);
+        this.last = new long[vendor.registers.length];
+        this.total = new long[vendor.registers.length];
+        for (int i = 0; i < last.length; i++) {
+            last[i] = msr.read(vendor.registers[i]) & MsrBackend.COUNTER_MASK;
+        }
+    }
+
+    @Override
+    public void read(double[] joules) throws IOException {
+        for (int i = 0; i < last.length; i++) {
+            long value = msr.read(vendor.registers[i]) & MsrBackend.COUNTER_MASK;
+            total[i] += MsrBackend.unwrap(last[i], value);
+            last[i] = value;
+            joules[vendor.meterDomains[i]] = total[i] * joulesPerUnit;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        msr.close();
+    }
+}
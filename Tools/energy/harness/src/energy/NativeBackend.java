@@ -0,0 +1,47 @@
+package energy;
+
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+
+/**
+ * Downcalls into {@code librapl_interface}.
+ *
+ * <p>The handles are {@code static final} so the JIT can treat them as
+ * constants and inline the downcall stubs into the measurement loop.
+ */
+final class NativeBackend implements Backend {
+    static {
+        System.loadLibrary("rapl_interface");
+    }
+
+    private static final MethodHandle START_RAPL;
+    private static final MethodHandle STOP_RAPL;
+
+    static {
+        SymbolLookup lookup = SymbolLookup.loaderLookup();
+        Linker linker = Linker.nativeLinker();
+
+        START_RAPL = linker.downcallHandle(
+                lookup.find("start_rapl").orElseThrow(),
+                FunctionDescriptor.of(ValueLayout.JAVA_INT)
+        );
+
+        STOP_RAPL = linker.downcallHandle(
+                lookup.find("stop_rapl").orElseThrow(),
+                FunctionDescriptor.ofVoid()
+        );
+    }
+
+    @Override
+    public int start() throws Throwable {
+        return (int) START_RAPL.invokeExact();
+    }
+
+    @Override
+    public void stop() throws Throwable {
+        STOP_RAPL.invokeExact();
+    }
+}
@@ -0,0 +1,119 @@
+package energy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+/**
+ * Stands in for {@link System#out} and keeps only the MD5 digest and size of
+ * what a benchmark prints, so writing to a pipe or disk is not part of the
+ * measured energy.
+ *
+ * <p>Enabled with {@code -Denergy.digest=true}. A {@code <md5> <bytes>} line
+ * per iteration is kept in memory and appended to {@value #DIGEST_TXT} by
+ * {@link #close()}, which {@code energy measure} compares against the
+ * digest of {@code expected.txt}.
+ *
+ * <p>Single bytes are gathered in a reused buffer, larger writes go straight
+ * to the digest, so nothing is allocated per write.
+ */
+final class OutputDigest extends OutputStream {
+    static final String DIGEST_TXT = "digest.txt";
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final MessageDigest md5;
+    private final byte[] buffer = new byte[8192];
+    private int buffered = 0;
+    private long bytes = 0;
+
+    private final PrintStream out;
+    private final PrintStream previous;
+    private final StringBuilder lines = new StringBuilder();
+
+    private OutputDigest() {
+        try {
+            this.md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        this.out = new PrintStream(this, false) {
+            // Some programs close System.out once they are done writing
+            @Override
+            public void close() {
+                flush();
+            }
+        };
+        this.previous = System.out;
+    }
+
+    static boolean enabled() {
+        return Boolean.getBoolean("energy.digest");
+    }
+
+    /** Points {@link System#out} at a new digest until it is closed. */
+    static OutputDigest install() {
+        OutputDigest digest = new OutputDigest();
+        System.setOut(digest.out);
+        return digest;
+    }
+
+    @Override
+    public void write(int b) {
+        if (buffered == buffer.length) {
+            drain();
+        }
+        buffer[buffered++] = (byte) b;
+        bytes++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len < buffer.length - buffered) {
+            System.arraycopy(b, off, buffer, buffered, len);
+            buffered += len;
+        } else {
+            drain();
+            md5.update(b, off, len);
+        }
+        bytes += len;
+    }
+
+    private void drain() {
+        md5.update(buffer, 0, buffered);
+        buffered = 0;
+    }
+
+    /** Ends the output of one iteration, recording its digest and size. */
+    void finish() {
+        out.flush();
+        drain();
+        for (byte b : md5.digest()) {
+            lines.append((char) HEX[(b >> 4) & 0xF]).append((char) HEX[b & 0xF]);
+        }
+        lines.append(' ').append(bytes).append('\n');
+        bytes = 0;
+    }
+
+    /** Restores {@link System#out} and appends the recorded lines to {@value #DIGEST_TXT}. */
+    @Override
+    public void close() {
+        System.setOut(previous);
+        try {
+            Files.writeString(Path.of(DIGEST_TXT), lines, StandardCharsets.US_ASCII,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        lines.setLength(0);
+    }
+}
@@ -0,0 +1,250 @@
+package energy;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Path;
+
+/**
+ * Counts the hardware events of the benchmark threads in every window with
+ * {@code perf_event_open}, enabled with {@code -Denergy.perf=true}.
+ *
+ * <p>One counter per event is opened on the thread running the harness with
+ * {@code inherit} set, so the threads it creates afterwards, e.g. the
+ * workers, are counted too. The counters are reset and enabled before every
+ * window and disabled after it through the parent counter, which forwards
+ * all three to the inherited ones, and reading the parent sums the live
+ * inherited counters with those of the threads that exited. Workers kept
+ * alive across windows by a pool are therefore counted per window like
+ * fresh ones.
+ *
+ * <p>Only threads created by the harness thread or its descendants after
+ * {@link IterationListener#load()} are counted. JVM threads such as the JIT
+ * and GC threads, and threads started earlier, e.g. a pool a benchmark
+ * creates in {@code main} before it calls the harness, are not.
+ *
+ * <p>Counts are scaled by the time the counter was enabled over the time it
+ * was running when the PMU multiplexes them. An event the CPU does not
+ * support is logged as -1. After the last window
+ * {@code Iteration,Cycles,Instructions,CacheReferences,CacheMisses,Branches,BranchMisses,LlcLoads}
+ * rows are appended to {@value #COUNTERS_CSV}.
+ */
+final class PerfCounters implements IterationListener {
+    static final String COUNTERS_CSV = "counters.csv";
+
+    private static final boolean ENABLED = Boolean.getBoolean("energy.perf");
+
+    private static final int PERF_TYPE_HARDWARE = 0;
+    private static final int PERF_TYPE_HW_CACHE = 3;
+    /** {@code PERF_COUNT_HW_CACHE_LL | PERF_COUNT_HW_CACHE_OP_READ << 8 | PERF_COUNT_HW_CACHE_RESULT_ACCESS << 16} */
+    private static final long LLC_LOADS = 2;
+
+    /** Type and config of each column after {@code Iteration}. */
+    private static final long[][] EVENTS = {
+            {PERF_TYPE_HARDWARE, 0},   // PERF_COUNT_HW_CPU_CYCLES
+            {PERF_TYPE_HARDWARE, 1},   // PERF_COUNT_HW_INSTRUCTIONS
+            {PERF_TYPE_HARDWARE, 2},   // PERF_COUNT_HW_CACHE_REFERENCES
+            {PERF_TYPE_HARDWARE, 3},   // PERF_COUNT_HW_CACHE_MISSES
+            {PERF_TYPE_HARDWARE, 4},   // PERF_COUNT_HW_BRANCH_INSTRUCTIONS
+            {PERF_TYPE_HARDWARE, 5},   // PERF_COUNT_HW_BRANCH_MISSES
+            {PERF_TYPE_HW_CACHE, LLC_LOADS},
+    };
+
+    private final int[] fds = new int[EVENTS.length];
+    private final MemorySegment value = Arena.global().allocate(Native.READ_FORMAT);
+
+    private final CsvLog log = new CsvLog(Path.of(COUNTERS_CSV), "Iteration",
+            "Cycles", "Instructions", "CacheReferences", "CacheMisses", "Branches", "BranchMisses", "LlcLoads");
+    private final long[] row = new long[EVENTS.length + 1];
+
+    PerfCounters() {
+        int errno = 0;
+        boolean opened = false;
+        for (int i = 0; i < EVENTS.length; i++) {
+            fds[i] = Native.open((int) EVENTS[i][0], EVENTS[i][1]);
+            if (fds[i] < 0) {
+                errno = -fds[i];
+            } else {
+                opened = true;
+            }
+        }
+        if (!opened) {
+            throw new IllegalStateException("perf_event_open failed with errno " + errno
+                    + ", check /proc/sys/kernel/perf_event_paranoid");
+        }
+    }
+
+    static boolean enabled() {
+        return ENABLED;
+    }
+
+    @Override
+    public void beforeIteration() {
+        for (int fd : fds) {
+            if (fd >= 0) {
+                Native.ioctl(fd, Native.PERF_EVENT_IOC_RESET);
+            }
+        }
+        for (int fd : fds) {
+            if (fd >= 0) {
+                Native.ioctl(fd, Native.PERF_EVENT_IOC_ENABLE);
+            }
+        }
+    }
+
+    @Override
+    public void afterIteration(int iteration) {
+        for (int fd : fds) {
+            if (fd >= 0) {
+                Native.ioctl(fd, Native.PERF_EVENT_IOC_DISABLE);
+            }
+        }
+
+        row[0] = iteration;
+        for (int i = 0; i < fds.length; i++) {
+            row[i + 1] = fds[i] < 0 ? -1 : read(fds[i]);
+        }
+        log.add(row);
+    }
+
+    @Override
+    public void finish() {
+        log.flush();
+        for (int fd : fds) {
+            if (fd >= 0) {
+                Native.close(fd);
+            }
+        }
+    }
+
+    /** The count of {@code fd}, scaled up when it was multiplexed. */
+    private long read(int fd) {
+        Native.read(fd, value);
+        long count = value.get(ValueLayout.JAVA_LONG, 0);
+        long enabled = value.get(ValueLayout.JAVA_LONG, 8);
+        long running = value.get(ValueLayout.JAVA_LONG, 16);
+        if (running == 0) {
+            return 0;
+        }
+        return running < enabled ? Math.round((double) count * enabled / running) : count;
+    }
+
+    /**
+     * Downcalls into libc. glibc has no {@code perf_event_open}, so it goes
+     * through {@code syscall} with every argument widened to {@code long}, as
+     * {@code syscall} reads them.
+     */
+    private static final class Native {
+        static final long PERF_EVENT_IOC_ENABLE = 0x2400;
+        static final long PERF_EVENT_IOC_DISABLE = 0x2401;
+        static final long PERF_EVENT_IOC_RESET = 0x2403;
+
+        /** {@code PERF_FORMAT_TOTAL_TIME_ENABLED | PERF_FORMAT_TOTAL_TIME_RUNNING} */
+        private static final long READ_FORMAT_FLAGS = 1 | 2;
+        /** value, time_enabled and time_running */
+        static final MemoryLayout READ_FORMAT = MemoryLayout.sequenceLayout(3, ValueLayout.JAVA_LONG);
+
+        /** {@code PERF_ATTR_SIZE_VER7} */
+        private static final long ATTR_SIZE = 128;
+        private static final long ATTR_TYPE = 0;
+        private static final long ATTR_SIZE_FIELD = 4;
+        private static final long ATTR_CONFIG = 8;
+        private static final long ATTR_READ_FORMAT = 32;
+        private static final long ATTR_FLAGS = 40;
+        /** {@code disabled}, {@code inherit} and {@code exclude_hv} */
+        private static final long FLAGS = 1 | 1 << 1 | 1 << 6;
+
+        private static final StructLayout CALL_STATE = Linker.Option.captureStateLayout();
+        private static final long ERRNO = CALL_STATE.byteOffset(MemoryLayout.PathElement.groupElement("errno"));
+
+        private static final long SYS_PERF_EVENT_OPEN = switch (System.getProperty("os.arch")) {
+            case "amd64", "x86_64" -> 298;
+            case "aarch64" -> 241;
+            default -> throw new IllegalStateException("No perf_event_open syscall number for " + System.getProperty("os.arch"));
+        };
+
+        private static final MethodHandle SYSCALL;
+        private static final MethodHandle IOCTL;
+        private static final MethodHandle READ;
+        private static final MethodHandle CLOSE;
+
+        static {
+            Linker linker = Linker.nativeLinker();
+            SYSCALL = linker.downcallHandle(
+                    linker.defaultLookup().find("syscall").orElseThrow(),
+                    FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG, ValueLayout.ADDRESS,
+                            ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG),
+                    Linker.Option.firstVariadicArg(1), Linker.Option.captureCallState("errno"));
+            IOCTL = linker.downcallHandle(
+                    linker.defaultLookup().find("ioctl").orElseThrow(),
+                    FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG),
+                    Linker.Option.firstVariadicArg(2));
+            READ = linker.downcallHandle(
+                    linker.defaultLookup().find("read").orElseThrow(),
+                    FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG));
+            CLOSE = linker.downcallHandle(
+                    linker.defaultLookup().find("close").orElseThrow(),
+                    FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+        }
+
+        /** Opens a disabled counter of the calling thread, or returns {@code -errno}. */
+        static int open(int type, long config) {
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment state = arena.allocate(CALL_STATE);
+                MemorySegment attr = arena.allocate(ATTR_SIZE, 8);
+                attr.set(ValueLayout.JAVA_INT, ATTR_TYPE, type);
+                attr.set(ValueLayout.JAVA_INT, ATTR_SIZE_FIELD, (int) ATTR_SIZE);
+                attr.set(ValueLayout.JAVA_LONG, ATTR_CONFIG, config);
+                attr.set(ValueLayout.JAVA_LONG, ATTR_READ_FORMAT, READ_FORMAT_FLAGS);
+                attr.set(ValueLayout.JAVA_LONG, ATTR_FLAGS, FLAGS);
+
+                // pid 0 and cpu -1 follow the calling thread on any CPU, without a group
+                long fd = (long) SYSCALL.invokeExact(state, SYS_PERF_EVENT_OPEN, attr, 0L, -1L, -1L, 0L);
+                return fd < 0 ? -state.get(ValueLayout.JAVA_INT, ERRNO) : (int) fd;
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        static void ioctl(int fd, long request) {
+            try {
+                if ((int) IOCTL.invokeExact(fd, request, 0L) != 0) {
+                    throw new IllegalStateException("ioctl " + Long.toHexString(request) + " on perf event failed");
+                }
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        static void read(int fd, MemorySegment value) {
+            try {
+                if ((long) READ.invokeExact(fd, value, value.byteSize()) != value.byteSize()) {
+                    throw new IllegalStateException("short read of perf event");
+                }
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        static void close(int fd) {
+            try {
+                int ignored = (int) CLOSE.invokeExact(fd);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package energy;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates {@link ForkJoinPool} workers that pin themselves with
+ * {@link Affinity} once they start, numbered in the order they are created.
+ *
+ * <p>The common pool picks it up with
+ * {@code -Djava.util.concurrent.ForkJoinPool.common.threadFactory=energy.PinnedWorkerFactory},
+ * which is why it is public.
+ */
+public final class PinnedWorkerFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+    private final AtomicInteger workers = new AtomicInteger();
+
+    public PinnedWorkerFactory() {
+    }
+
+    @Override
+    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+        int worker = workers.getAndIncrement();
+        return new ForkJoinWorkerThread(pool) {
+            @Override
+            protected void onStart() {
+                super.onStart();
+                if (Affinity.enabled()) {
+                    Affinity.pin(worker);
+                }
+            }
+        };
+    }
+}
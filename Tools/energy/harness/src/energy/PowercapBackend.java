@@ -0,0 +1,113 @@
+package energy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads energy from the powercap sysfs interface, which covers every socket
+ * and does not need the msr module or root, only read access to
+ * {@code energy_uj}.
+ *
+ * <p>The summed energy of all sockets is written to {@value #CSV} in the
+ * column layout of {@code Intel_x.csv}, so {@code energy report} reads it
+ * unchanged. Its values are in units of 2^-20 J, which the power unit
+ * {@value #POWER_UNIT} in the file name encodes. The energy of each socket
+ * is written in microjoules to {@value #SOCKETS_CSV}.
+ *
+ * <p>{@code -Denergy.powercap=<dir>} reads another directory laid out like
+ * {@code /sys/class/powercap}.
+ */
+final class PowercapBackend implements Backend {
+    static final int POWER_UNIT = 20 << 8;
+    static final String CSV = "Powercap_" + POWER_UNIT + ".csv";
+    static final String SOCKETS_CSV = "sockets.csv";
+
+    private final List<PowercapSocket> sockets;
+    private final CsvLog log;
+    private final CsvLog socketLog;
+    private final int maxIterations = Harness.iterations() + 1;
+    private int iteration = 0;
+
+    private long timeStart;
+    private final long[] start;
+    private final long[] end;
+    private final long[] row = new long[2 + 2 * Meter.DOMAINS];
+    private final long[] socketRow = new long[3 + Meter.DOMAINS];
+
+    PowercapBackend() {
+        Path root = Path.of(System.getProperty("energy.powercap", "/sys/class/powercap"));
+        try {
+            this.sockets = PowercapSocket.enumerate(root);
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to open powercap zones in " + root, e);
+        }
+        if (sockets.isEmpty()) {
+            throw new IllegalStateException("No intel-rapl package zones in " + root);
+        }
+
+        this.start = new long[sockets.size() * Meter.DOMAINS];
+        this.end = new long[sockets.size() * Meter.DOMAINS];
+        this.log = new CsvLog(Path.of(CSV),
+                "TimeStart", "TimeEnd", "PP0Start", "PP0End", "PP1Start", "PP1End",
+                "PkgStart", "PkgEnd", "DramStart", "DramEnd");
+        this.socketLog = new CsvLog(Path.of(SOCKETS_CSV),
+                "Socket", "TimeStart", "TimeEnd", "Core", "Uncore", "Pkg", "Dram");
+    }
+
+    @Override
+    public int start() throws IOException {
+        if (++iteration >= maxIterations) {
+            log.flush();
+            socketLog.flush();
+            return 0;
+        }
+
+        timeStart = System.currentTimeMillis();
+        for (int s = 0; s < sockets.size(); s++) {
+            PowercapSocket socket = sockets.get(s);
+            for (int d = 0; d < Meter.DOMAINS; d++) {
+                start[s * Meter.DOMAINS + d] = socket.sample(d);
+            }
+        }
+        return 1;
+    }
+
+    @Override
+    public void stop() throws IOException {
+        for (int s = 0; s < sockets.size(); s++) {
+            PowercapSocket socket = sockets.get(s);
+            for (int d = 0; d < Meter.DOMAINS; d++) {
+                end[s * Meter.DOMAINS + d] = socket.sample(d);
+            }
+        }
+        long timeEnd = System.currentTimeMillis();
+
+        Arrays.fill(row, 0);
+        row[0] = timeStart;
+        row[1] = timeEnd;
+        for (int s = 0; s < sockets.size(); s++) {
+            socketRow[0] = sockets.get(s).id;
+            socketRow[1] = timeStart;
+            socketRow[2] = timeEnd;
+            for (int d = 0; d < Meter.DOMAINS; d++) {
+                int i = s * Meter.DOMAINS + d;
+                socketRow[3 + d] = end[i] - start[i];
+                row[2 + 2 * d] += start[i];
+                row[3 + 2 * d] += end[i];
+            }
+            socketLog.add(socketRow);
+        }
+        for (int i = 2; i < row.length; i++) {
+            row[i] = toUnits(row[i]);
+        }
+        log.add(row);
+    }
+
+    /** Converts microjoules to 2^-20 J, i.e. multiplies by 2^20 / 10^6 exactly. */
+    static long toUnits(long microjoules) {
+        return microjoules * 16384 / 15625;
+    }
+}
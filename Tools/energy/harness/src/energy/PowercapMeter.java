@@ -0,0 +1,36 @@
+package energy;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/** A {@link Meter} summing every socket of the powercap interface, see {@link PowercapBackend}. */
+final class PowercapMeter implements Meter {
+    private final List<PowercapSocket> sockets;
+
+    PowercapMeter() throws IOException {
+        this.sockets = PowercapSocket.enumerate(
+                Path.of(System.getProperty("energy.powercap", "/sys/class/powercap")));
+        if (sockets.isEmpty()) {
+            throw new IOException("No intel-rapl package zones found");
+        }
+    }
+
+    @Override
+    public void read(double[] joules) throws IOException {
+        for (int domain = 0; domain < DOMAINS; domain++) {
+            long microjoules = 0;
+            for (PowercapSocket socket : sockets) {
+                microjoules += socket.sample(domain);
+            }
+            joules[domain] = microjoules * 1e-6;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (PowercapSocket socket : sockets) {
+            socket.close();
+        }
+    }
+}
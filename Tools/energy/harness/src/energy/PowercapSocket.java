@@ -0,0 +1,83 @@
+package energy;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The RAPL domains of one package as exposed under
+ * {@code /sys/class/powercap/intel-rapl:<n>}.
+ *
+ * <p>Domains the CPU does not expose are {@code null}. On AMD the kernel
+ * reuses the {@code intel-rapl} driver and only offers package and core.
+ */
+final class PowercapSocket implements AutoCloseable {
+    final int id;
+    final PowercapZone[] zones = new PowercapZone[Meter.DOMAINS];
+
+    private PowercapSocket(int id) {
+        this.id = id;
+    }
+
+    /** Microjoules counted by the {@link Meter} {@code domain} since it was opened, 0 if missing. */
+    long sample(int domain) throws IOException {
+        PowercapZone zone = zones[domain];
+        return zone == null ? 0 : zone.sample();
+    }
+
+    /**
+     * Finds every {@code package-<n>} zone below {@code root}, skipping
+     * {@code psys} and the {@code intel-rapl-mmio} duplicates.
+     */
+    static List<PowercapSocket> enumerate(Path root) throws IOException {
+        List<PowercapSocket> sockets = new ArrayList<>();
+        try (DirectoryStream<Path> packages = Files.newDirectoryStream(root, "intel-rapl:*")) {
+            for (Path dir : packages) {
+                String zoneName = dir.getFileName().toString();
+                if (zoneName.indexOf(':') != zoneName.lastIndexOf(':')) {
+                    continue; // A subzone, opened through its package below
+                }
+                PowercapZone pkg = new PowercapZone(dir);
+                if (!pkg.name.startsWith("package-")) {
+                    pkg.close();
+                    continue;
+                }
+
+                PowercapSocket socket = new PowercapSocket(Integer.parseInt(pkg.name.substring("package-".length())));
+                socket.zones[Meter.PKG] = pkg;
+                try (DirectoryStream<Path> subzones = Files.newDirectoryStream(dir, zoneName + ":*")) {
+                    for (Path subdir : subzones) {
+                        PowercapZone zone = new PowercapZone(subdir);
+                        int domain = switch (zone.name) {
+                            case "core" -> Meter.CORE;
+                            case "uncore" -> Meter.UNCORE;
+                            case "dram" -> Meter.DRAM;
+                            default -> -1;
+                        };
+                        if (domain < 0 || socket.zones[domain] != null) {
+                            zone.close();
+                        } else {
+                            socket.zones[domain] = zone;
+                        }
+                    }
+                }
+                sockets.add(socket);
+            }
+        }
+        sockets.sort(Comparator.comparingInt(socket -> socket.id));
+        return sockets;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (PowercapZone zone : zones) {
+            if (zone != null) {
+                zone.close();
+            }
+        }
+    }
+}
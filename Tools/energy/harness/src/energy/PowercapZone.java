@@ -0,0 +1,74 @@
+package energy;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One {@code intel-rapl} zone of the powercap framework, e.g. a package or
+ * its core, uncore or dram subzone.
+ *
+ * <p>{@code energy_uj} is kept open and re-read from offset 0, which makes
+ * sysfs regenerate the value, into a reused off-heap buffer. The counter
+ * wraps at {@code max_energy_range_uj}; {@link #sample()} accumulates the
+ * deltas so the returned total only ever grows, as long as it is called
+ * at least once per wraparound. Instances are not thread-safe.
+ */
+final class PowercapZone implements AutoCloseable {
+    final Path dir;
+    final String name;
+
+    private final FileChannel channel;
+    private final MemorySegment segment;
+    private final ByteBuffer buffer;
+    private final long maxRange;
+    private long last;
+    private long total = 0;
+
+    PowercapZone(Path dir) throws IOException {
+        this.dir = dir;
+        this.name = Files.readString(dir.resolve("name")).trim();
+        this.maxRange = Long.parseLong(Files.readString(dir.resolve("max_energy_range_uj")).trim());
+        this.channel = FileChannel.open(dir.resolve("energy_uj"), StandardOpenOption.READ);
+        this.segment = Arena.ofAuto().allocate(32);
+        this.buffer = segment.asByteBuffer();
+        this.last = read();
+    }
+
+    /** Microjoules counted since this zone was opened. */
+    long sample() throws IOException {
+        long value = read();
+        total += value >= last ? value - last : maxRange - last + value;
+        last = value;
+        return total;
+    }
+
+    private long read() throws IOException {
+        buffer.clear();
+        int length = 0;
+        int read;
+        while ((read = channel.read(buffer, length)) > 0) {
+            length += read;
+        }
+
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            byte digit = buffer.get(i);
+            if (digit < '0' || digit > '9') {
+                break;
+            }
+            value = value * 10 + (digit - '0');
+        }
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,29 @@
+package energy;
+
+/**
+ * The {@code start_rapl}/{@code stop_rapl} pair used by {@link Harness}.
+ *
+ * <p>The backend is chosen once with {@code -Denergy.backend}:
+ * <ul>
+ *   <li>{@code native} (default) calls into {@code librapl_interface}</li>
+ *   <li>{@code msr} reads {@code /dev/cpu/0/msr} from Java, see {@link MsrBackend}</li>
+ *   <li>{@code powercap} reads every socket from sysfs, see {@link PowercapBackend}</li>
+ * </ul>
+ */
+public final class Rapl {
+    private static final Backend BACKEND =
+            Backend.of(System.getProperty("energy.backend", "native"));
+
+    private Rapl() {
+    }
+
+    /** Reads the start registers. Returns 0 when there are no iterations left. */
+    public static int start() throws Throwable {
+        return BACKEND.start();
+    }
+
+    /** Reads the end registers and records a row in the RAPL CSV. */
+    public static void stop() throws Throwable {
+        BACKEND.stop();
+    }
+}
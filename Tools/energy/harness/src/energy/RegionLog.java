@@ -0,0 +1,62 @@
+package energy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Logs the {@link Energy} regions closed in every window, enabled with
+ * {@code -Denergy.regions=true}.
+ *
+ * <p>After the last window
+ * {@code Iteration,Region,Count,Nanos,CoreMicrojoules,UncoreMicrojoules,PkgMicrojoules,DramMicrojoules}
+ * rows are appended to {@value #REGIONS_CSV}, one per region path and
+ * window. Regions closed before the harness starts, e.g. reading the input
+ * in {@code main}, are logged with iteration -1. Those closed between
+ * windows, e.g. while warming up, are dropped.
+ */
+final class RegionLog implements IterationListener {
+    static final String REGIONS_CSV = "regions.csv";
+
+    private final StringBuilder rows = new StringBuilder();
+
+    RegionLog() {
+        Energy.drain((path, row) -> add(-1, path, row));
+    }
+
+    @Override
+    public void beforeIteration() {
+        Energy.drain((path, row) -> {});
+    }
+
+    @Override
+    public void afterIteration(int iteration) {
+        Energy.drain((path, row) -> add(iteration, path, row));
+    }
+
+    @Override
+    public void finish() {
+        try (Writer writer = Files.newBufferedWriter(Path.of(REGIONS_CSV), StandardCharsets.US_ASCII,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (Files.size(Path.of(REGIONS_CSV)) == 0) {
+                writer.write("Iteration,Region,Count,Nanos,CoreMicrojoules,UncoreMicrojoules,PkgMicrojoules,DramMicrojoules\n");
+            }
+            writer.append(rows);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        rows.setLength(0);
+    }
+
+    private void add(int iteration, String path, long[] row) {
+        rows.append(iteration).append(',').append(path.replace(',', ' '));
+        for (long value : row) {
+            rows.append(',').append(value);
+        }
+        rows.append('\n');
+    }
+}
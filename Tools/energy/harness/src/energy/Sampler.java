@@ -0,0 +1,236 @@
+package energy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Reads the energy every {@code -Denergy.sampler.micros}, 1000 by default,
+ * on a background thread, enabled with {@code -Denergy.sampler=true}.
+ *
+ * <p>Each sample is the {@link System#nanoTime()} and the package, core and
+ * DRAM joules of its own {@link Meter}, kept in an off-heap ring of
+ * {@code -Denergy.sampler.samples}, 1048576 by default, so sampling
+ * allocates nothing and older samples are overwritten once it is full.
+ * The GC pauses reported by the {@link GarbageCollectorMXBean}s and the
+ * {@link Energy} regions closed on any thread are kept as markers.
+ *
+ * <p>After the last window the sampler stops and appends
+ * {@code Iteration,Micros,PkgMilliwatts,CoreMilliwatts,DramMilliwatts,Markers}
+ * rows to {@value #TIMELINE_CSV}, one per sample taken in a window, with the
+ * power since the previous sample and the markers overlapping it. RAPL
+ * counters update roughly every millisecond, so the power of single samples
+ * at that period alternates around the real one. GC times have millisecond
+ * precision.
+ */
+final class Sampler implements IterationListener {
+    static final String TIMELINE_CSV = "timeline.csv";
+
+    private static final boolean ENABLED = Boolean.getBoolean("energy.sampler");
+    private static final long RECORD = 4 * Long.BYTES;
+
+    private static final List<Marker> MARKERS = new ArrayList<>();
+
+    private final long period = Long.getLong("energy.sampler.micros", 1000) * 1000;
+    private final long capacity = Long.getLong("energy.sampler.samples", 1 << 20);
+    private final Arena arena = Arena.ofShared();
+    private final MemorySegment ring = arena.allocate(capacity * RECORD, Long.BYTES);
+    private final Meter meter;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private long count;
+    private IOException failure;
+
+    private final List<long[]> windows = new ArrayList<>();
+    private long windowStart;
+
+    Sampler() {
+        if (period <= 0 || capacity < 2) {
+            throw new IllegalArgumentException("energy.sampler.micros must be positive and energy.sampler.samples at least 2");
+        }
+        try {
+            meter = Meter.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("energy.sampler needs an energy meter", e);
+        }
+        listenToGc();
+        thread = new Thread(this::sample, "energy-sampler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    static boolean enabled() {
+        return ENABLED;
+    }
+
+    /** Keeps the phase {@code name} that ran from {@code start} to {@code end} nanoseconds. */
+    static void mark(String name, long start, long end) {
+        synchronized (MARKERS) {
+            MARKERS.add(new Marker(name, start, end));
+        }
+    }
+
+    @Override
+    public void beforeIteration() {
+        windowStart = System.nanoTime();
+    }
+
+    @Override
+    public void afterIteration(int iteration) {
+        windows.add(new long[] { iteration, windowStart, System.nanoTime() });
+    }
+
+    @Override
+    public void finish() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while stopping the energy sampler", e);
+        }
+        try (meter) {
+            if (failure != null) {
+                throw failure;
+            }
+            write();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            arena.close();
+        }
+    }
+
+    private void sample() {
+        double[] joules = new double[Meter.DOMAINS];
+        long next = System.nanoTime();
+        while (running) {
+            try {
+                meter.read(joules);
+            } catch (IOException e) {
+                failure = e;
+                return;
+            }
+            long now = System.nanoTime();
+            long offset = count % capacity * RECORD;
+            ring.set(ValueLayout.JAVA_LONG, offset, now);
+            ring.set(ValueLayout.JAVA_DOUBLE, offset + 8, joules[Meter.PKG]);
+            ring.set(ValueLayout.JAVA_DOUBLE, offset + 16, joules[Meter.CORE]);
+            ring.set(ValueLayout.JAVA_DOUBLE, offset + 24, joules[Meter.DRAM]);
+            count++;
+
+            // Keep to the period, but skip the samples missed while descheduled
+            next += period;
+            if (next - now < 0) {
+                next = now + period;
+            }
+            LockSupport.parkNanos(next - System.nanoTime());
+        }
+    }
+
+    private void write() throws IOException {
+        List<Marker> markers;
+        synchronized (MARKERS) {
+            markers = new ArrayList<>(MARKERS);
+            MARKERS.clear();
+        }
+        markers.sort(Comparator.comparingLong(Marker::start));
+
+        StringBuilder rows = new StringBuilder();
+        long first = Math.max(0, count - capacity) + 1;
+        long sample = first;
+        for (long[] window : windows) {
+            long start = window[1];
+            long end = window[2];
+            while (sample < count && time(sample) <= start) {
+                sample++;
+            }
+            for (; sample < count && time(sample) <= end; sample++) {
+                long from = Math.max(time(sample - 1), start);
+                long to = time(sample);
+                double seconds = (to - time(sample - 1)) / 1e9;
+                if (seconds <= 0) {
+                    continue;
+                }
+                rows.append(window[0]).append(',').append((to - start) / 1000);
+                for (int field = 1; field <= 3; field++) {
+                    double joules = joules(sample, field) - joules(sample - 1, field);
+                    rows.append(',').append(Math.round(joules / seconds * 1e3));
+                }
+                rows.append(',');
+                String separator = "";
+                for (Marker marker : markers) {
+                    if (marker.start() > to) {
+                        break;
+                    }
+                    if (marker.end() >= from) {
+                        rows.append(separator).append(marker.name().replace(',', ' ').replace(';', ' '));
+                        separator = ";";
+                    }
+                }
+                rows.append('\n');
+            }
+        }
+        if (first > 1 && !windows.isEmpty() && time(first - 1) > windows.getFirst()[1]) {
+            System.err.println("energy.sampler: the ring kept the last " + capacity
+                    + " samples only, raise -Denergy.sampler.samples for the earlier windows");
+        }
+
+        try (Writer writer = Files.newBufferedWriter(Path.of(TIMELINE_CSV), StandardCharsets.US_ASCII,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (Files.size(Path.of(TIMELINE_CSV)) == 0) {
+                writer.write("Iteration,Micros,PkgMilliwatts,CoreMilliwatts,DramMilliwatts,Markers\n");
+            }
+            writer.append(rows);
+        }
+    }
+
+    private long time(long sample) {
+        return ring.get(ValueLayout.JAVA_LONG, sample % capacity * RECORD);
+    }
+
+    private double joules(long sample, int field) {
+        return ring.get(ValueLayout.JAVA_DOUBLE, sample % capacity * RECORD + field * 8L);
+    }
+
+    /**
+     * Marks every collection announced by the GC notifications, which
+     * HotSpot and OpenJ9 send with start and end times in milliseconds of
+     * JVM uptime.
+     */
+    private static void listenToGc() {
+        long origin = System.nanoTime() - ManagementFactory.getRuntimeMXBean().getUptime() * 1_000_000;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter emitter) {
+                emitter.addNotificationListener((notification, handback) -> {
+                    if (notification.getUserData() instanceof CompositeData data
+                            && data.containsKey("gcInfo")
+                            && data.get("gcInfo") instanceof CompositeData info) {
+                        mark("gc:" + data.get("gcName"),
+                                origin + (Long) info.get("startTime") * 1_000_000,
+                                origin + (Long) info.get("endTime") * 1_000_000);
+                    }
+                }, notification -> notification.getType().equals("com.sun.management.gc.notification"), null);
+            }
+        }
+    }
+
+    private record Marker(String name, long start, long end) {
+    }
+}
@@ -0,0 +1,193 @@
+package energy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Shares the package energy between the Java stacks running on a CPU,
+ * enabled with {@code -Denergy.profile=true}.
+ *
+ * <p>Every {@code -Denergy.profile.micros}, 10000 by default, a background
+ * thread reads its own {@link Meter} and the stacks of all threads from the
+ * {@link ThreadMXBean}, at most {@code -Denergy.profile.depth} frames deep,
+ * 128 by default. The energy since the previous sample is split evenly
+ * between the threads that are {@link Thread.State#RUNNABLE runnable} with a
+ * Java stack, ending in a {@code [native]} frame for those in native code,
+ * e.g. an FFM downcall to PCRE2. With none of them the energy goes to
+ * {@code [other]}, which is the GC, the JIT and idle CPUs. Only the samples
+ * whose interval lies within a single window are kept.
+ *
+ * <p>After the last window the energy of every stack is appended to
+ * {@value #STACKS_TXT} in the collapsed format of {@code flamegraph.pl},
+ * frames from the root separated by {@code ;} and then the microjoules.
+ * Taking the stacks stops the JVM at a safepoint, so the frames lean
+ * towards safepoint polls, like any profiler built on thread dumps. The
+ * dumps hold no virtual threads either, so under
+ * {@code -Dbench.runtime=virtual} the energy of the tasks goes to the
+ * frames of their carrier threads in a {@code ForkJoinPool}.
+ */
+final class StackProfiler implements IterationListener {
+    static final String STACKS_TXT = "stacks.txt";
+
+    private static final boolean ENABLED = Boolean.getBoolean("energy.profile");
+    private static final String OTHER = "[other]";
+    /** Threads of the JDK that wait in native code while runnable. */
+    private static final Set<String> SERVICE = Set.of("Reference Handler", "Finalizer", "Signal Dispatcher",
+            "Attach Listener", "Notification Thread", "Common-Cleaner");
+
+    private final long period = Long.getLong("energy.profile.micros", 10_000) * 1000;
+    private final int depth = Integer.getInteger("energy.profile.depth", 128);
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final Map<String, double[]> stacks = new HashMap<>();
+    private final Meter meter;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private IOException failure;
+
+    /** Odd while a window is open, one more on every edge. */
+    private volatile long phase;
+
+    StackProfiler() {
+        if (period <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("energy.profile.micros and energy.profile.depth must be positive");
+        }
+        try {
+            meter = Meter.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("energy.profile needs an energy meter", e);
+        }
+        thread = new Thread(this::sample, "energy-profiler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    static boolean enabled() {
+        return ENABLED;
+    }
+
+    @Override
+    public void beforeIteration() {
+        phase++;
+    }
+
+    @Override
+    public void afterIteration(int iteration) {
+        phase++;
+    }
+
+    @Override
+    public void finish() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while stopping the energy profiler", e);
+        }
+        try (meter) {
+            if (failure != null) {
+                throw failure;
+            }
+            write();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void sample() {
+        double[] joules = new double[Meter.DOMAINS];
+        double previous = Double.NaN;
+        long previousPhase = -1;
+        long self = Thread.currentThread().threadId();
+        List<String> runnable = new ArrayList<>();
+        long next = System.nanoTime();
+        while (running) {
+            long current = phase;
+            ThreadInfo[] infos = threads.dumpAllThreads(false, false, depth);
+            try {
+                meter.read(joules);
+            } catch (IOException e) {
+                failure = e;
+                return;
+            }
+
+            // The interval since the previous sample lies within one window
+            if (current % 2 == 1 && current == previousPhase && phase == current) {
+                runnable.clear();
+                for (ThreadInfo info : infos) {
+                    if (info != null && info.getThreadId() != self
+                            && !SERVICE.contains(info.getThreadName())
+                            && info.getThreadState() == Thread.State.RUNNABLE
+                            && info.getStackTrace().length > 0) {
+                        runnable.add(collapse(info));
+                    }
+                }
+                if (runnable.isEmpty()) {
+                    runnable.add(OTHER);
+                }
+                double share = (joules[Meter.PKG] - previous) / runnable.size();
+                for (String stack : runnable) {
+                    stacks.computeIfAbsent(stack, key -> new double[1])[0] += share;
+                }
+            }
+            previous = joules[Meter.PKG];
+            previousPhase = current;
+
+            long now = System.nanoTime();
+            next += period;
+            if (next - now < 0) {
+                next = now + period;
+            }
+            LockSupport.parkNanos(next - System.nanoTime());
+        }
+    }
+
+    private static String collapse(ThreadInfo info) {
+        StackTraceElement[] frames = info.getStackTrace();
+        StringBuilder stack = new StringBuilder();
+        for (int frame = frames.length - 1; frame >= 0; frame--) {
+            String type = frames[frame].getClassName();
+            // Hidden classes, e.g. of lambdas and method handles, are named
+            // after their address, which differs between runs
+            int hidden = type.indexOf("/0x");
+            if (hidden >= 0) {
+                type = type.substring(0, hidden);
+            }
+            stack.append(type).append('.').append(frames[frame].getMethodName());
+            if (frame > 0) {
+                stack.append(';');
+            }
+        }
+        if (info.isInNative()) {
+            stack.append(";[native]");
+        }
+        return stack.toString().replace(' ', '_');
+    }
+
+    private void write() throws IOException {
+        try (Writer writer = Files.newBufferedWriter(Path.of(STACKS_TXT), StandardCharsets.US_ASCII,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (Map.Entry<String, double[]> stack : stacks.entrySet()) {
+                long microjoules = Math.round(stack.getValue()[0] * 1e6);
+                if (microjoules > 0) {
+                    writer.append(stack.getKey()).append(' ').append(Long.toString(microjoules)).append('\n');
+                }
+            }
+        }
+    }
+}
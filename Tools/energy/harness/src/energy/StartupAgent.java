@@ -0,0 +1,147 @@
+package energy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
+import java.security.ProtectionDomain;
+
+/**
+ * A {@code -javaagent:harness.jar} that splits the energy of a whole run
+ * into startup, first iteration, steady state and teardown.
+ *
+ * <p>A {@link Meter} is read when the agent starts, when the main class is
+ * loaded right before {@code main} runs, after the first window of
+ * {@link Harness}, after its last window and in a shutdown hook:
+ * <ul>
+ *   <li>startup is the JVM from the agent to {@code main}</li>
+ *   <li>first iteration is {@code main} up to the end of the first window,
+ *       with the setup of the benchmark, the RAPL backend and its cold
+ *       first run, and the warmup of {@code -Denergy.steady}</li>
+ *   <li>steady state is every later window</li>
+ *   <li>teardown is from the last window to the shutdown hooks, with the
+ *       logs the listeners write</li>
+ * </ul>
+ * The split is printed to stderr and appended to {@value #STARTUP_CSV} as
+ * nanoseconds and package microjoules per phase. Booting the JVM up to the
+ * agent and exiting after the hooks are only seen by {@code perf stat}.
+ *
+ * <p>{@code -javaagent:harness.jar=methods} installs the method profiler of
+ * {@code energy.methods} instead, see {@code -Denergy.methods}. Both can be
+ * given as two agents.
+ */
+public final class StartupAgent {
+    static final String STARTUP_CSV = "startup.csv";
+
+    private static final String METHODS = "methods";
+    private static final String[] PHASES = { "Startup", "First", "Steady", "Teardown" };
+    private static final int AGENT = 0;
+    private static final int MAIN = 1;
+    private static final int FIRST = 2;
+    private static final int LAST = 3;
+    private static final int EXIT = 4;
+
+    private static final long[] NANOS = new long[EXIT + 1];
+    private static final double[] JOULES = new double[EXIT + 1];
+    private static final boolean[] MARKED = new boolean[EXIT + 1];
+    private static final double[] READING = new double[Meter.DOMAINS];
+    private static Meter meter;
+
+    private StartupAgent() {
+    }
+
+    public static void premain(String args, Instrumentation instrumentation) throws IOException {
+        if (METHODS.equals(args)) {
+            installMethods(instrumentation);
+            return;
+        }
+
+        meter = Meter.open();
+        mark(AGENT);
+
+        String command = System.getProperty("sun.java.command", "");
+        String main = command.split(" ", 2)[0].replace('.', '/');
+        instrumentation.addTransformer(new ClassFileTransformer() {
+            @Override
+            public byte[] transform(ClassLoader loader, String name, Class<?> redefined,
+                    ProtectionDomain domain, byte[] bytes) {
+                if (main.equals(name)) {
+                    mark(MAIN);
+                    instrumentation.removeTransformer(this);
+                }
+                return null;
+            }
+        });
+
+        Runtime.getRuntime().addShutdownHook(new Thread(StartupAgent::report, "energy-startup"));
+    }
+
+    /**
+     * The method profiler of {@code energy.methods} when it was built into
+     * the harness, which needs the {@code java.lang.classfile} API.
+     */
+    private static void installMethods(Instrumentation instrumentation) {
+        try {
+            Class.forName("energy.methods.MethodAgent")
+                    .getMethod("install", Instrumentation.class)
+                    .invoke(null, instrumentation);
+        } catch (InvocationTargetException e) {
+            throw new IllegalArgumentException(e.getCause().getMessage(), e.getCause());
+        } catch (ReflectiveOperationException | LinkageError e) {
+            System.err.println("energy agent: no method profiler in this harness, " + e);
+        }
+    }
+
+    /** Called by {@link Harness} after each window. */
+    static void windowEnded() {
+        if (meter != null) {
+            mark(MARKED[FIRST] ? LAST : FIRST);
+        }
+    }
+
+    private static synchronized void mark(int point) {
+        if (point == LAST || !MARKED[point]) {
+            try {
+                meter.read(READING);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            NANOS[point] = System.nanoTime();
+            JOULES[point] = READING[Meter.PKG];
+            MARKED[point] = true;
+        }
+    }
+
+    private static synchronized void report() {
+        mark(EXIT);
+        // Points never reached, e.g. the last window of a single one, end
+        // their phase where the one before ended
+        for (int point = MAIN; point < EXIT; point++) {
+            if (!MARKED[point]) {
+                NANOS[point] = NANOS[point - 1];
+                JOULES[point] = JOULES[point - 1];
+            }
+        }
+
+        long[] row = new long[2 * PHASES.length];
+        StringBuilder line = new StringBuilder("energy agent:");
+        for (int phase = 0; phase < PHASES.length; phase++) {
+            row[2 * phase] = NANOS[phase + 1] - NANOS[phase];
+            row[2 * phase + 1] = Math.round((JOULES[phase + 1] - JOULES[phase]) * 1e6);
+            line.append(String.format(" %s %.3f ms %.3f J", PHASES[phase].toLowerCase(),
+                    row[2 * phase] / 1e6, row[2 * phase + 1] / 1e6));
+        }
+        System.err.println(line);
+
+        String[] columns = new String[row.length];
+        for (int phase = 0; phase < PHASES.length; phase++) {
+            columns[2 * phase] = PHASES[phase] + "Nanos";
+            columns[2 * phase + 1] = PHASES[phase] + "PkgMicrojoules";
+        }
+        CsvLog log = new CsvLog(Path.of(STARTUP_CSV), columns);
+        log.add(row);
+        log.flush();
+    }
+}
@@ -0,0 +1,165 @@
+package energy;
+
+import java.io.IOException;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+
+/**
+ * Unmeasured warmup that runs until the benchmark is in a steady state,
+ * replacing a guessed number of warmup iterations.
+ *
+ * <p>Enabled with {@code -Denergy.steady=true}. The state is steady once,
+ * over the last {@code energy.steady.window} iterations (default 5):
+ * <ul>
+ *   <li>the coefficient of variation of the time is below
+ *       {@code energy.steady.cov} (default 0.02),</li>
+ *   <li>so is that of the package energy, when a {@link Meter} can be opened,</li>
+ *   <li>and the JIT compilers spent less than the same fraction of the time
+ *       compiling, according to {@link CompilationMXBean}.</li>
+ * </ul>
+ * At most {@code energy.steady.max} iterations (default 100) are run, with
+ * a warning on stderr when the state is not steady by then. Each of them is
+ * logged to {@value #WARMUP_CSV}, with the energy in microjoules or -1
+ * without a meter, and whether the state was steady after it, so the last
+ * row records the outcome.
+ */
+final class SteadyState {
+    static final String WARMUP_CSV = "warmup.csv";
+
+    private final int window;
+    private final double threshold;
+    private final int max;
+
+    private final long[] times;
+    private final double[] joules;
+    private final long[] compilation;
+
+    SteadyState(int window, double threshold, int max) {
+        if (window < 2) {
+            throw new IllegalArgumentException("energy.steady.window must be at least 2");
+        }
+        this.window = window;
+        this.threshold = threshold;
+        this.max = max;
+        this.times = new long[window];
+        this.joules = new double[window];
+        this.compilation = new long[window];
+    }
+
+    static boolean enabled() {
+        return Boolean.getBoolean("energy.steady");
+    }
+
+    static SteadyState fromProperties() {
+        return new SteadyState(
+                Integer.getInteger("energy.steady.window", 5),
+                Double.parseDouble(System.getProperty("energy.steady.cov", "0.02")),
+                Integer.getInteger("energy.steady.max", 100));
+    }
+
+    /**
+     * Runs {@code benchmark} until steady or {@code max} iterations, calling
+     * {@code cleanup} after each. Returns the number of iterations run.
+     */
+    int warmUp(Benchmark benchmark, Runnable cleanup) throws Throwable {
+        CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+        boolean compilerTimed = compiler != null && compiler.isCompilationTimeMonitoringSupported();
+        Meter meter = openMeter();
+        double[] energy = new double[Meter.DOMAINS];
+        CsvLog log = new CsvLog(Path.of(WARMUP_CSV), "NanoStart", "NanoEnd", "Microjoules", "CompilationMillis",
+                "Steady");
+        long[] row = new long[5];
+
+        try {
+            int iteration = 0;
+            boolean steady = false;
+            while (iteration < max && !steady) {
+                long compiledBefore = compilerTimed ? compiler.getTotalCompilationTime() : 0;
+                double joulesBefore = read(meter, energy);
+                long start = System.nanoTime();
+                benchmark.run();
+                long end = System.nanoTime();
+                double joulesAfter = read(meter, energy);
+                long compiledAfter = compilerTimed ? compiler.getTotalCompilationTime() : 0;
+
+                int slot = iteration % window;
+                times[slot] = end - start;
+                joules[slot] = joulesAfter - joulesBefore;
+                compilation[slot] = compiledAfter - compiledBefore;
+                iteration++;
+                steady = iteration >= window && steady(meter != null);
+
+                row[0] = start;
+                row[1] = end;
+                row[2] = meter == null ? -1 : Math.round(joules[slot] * 1e6);
+                row[3] = compilation[slot];
+                row[4] = steady ? 1 : 0;
+                log.add(row);
+                cleanup.run();
+            }
+            if (!steady) {
+                System.err.println("energy.steady: not steady after " + iteration
+                        + " iterations, measuring anyway");
+            }
+            return iteration;
+        } finally {
+            log.flush();
+            if (meter != null) {
+                meter.close();
+            }
+        }
+    }
+
+    private boolean steady(boolean withEnergy) {
+        double[] nanos = new double[window];
+        long totalNanos = 0;
+        long compiledMillis = 0;
+        for (int i = 0; i < window; i++) {
+            nanos[i] = times[i];
+            totalNanos += times[i];
+            compiledMillis += compilation[i];
+        }
+        return cov(nanos) < threshold
+                && (!withEnergy || cov(joules) < threshold)
+                && compiledMillis * 1e6 < threshold * totalNanos;
+    }
+
+    /**
+     * Coefficient of variation, the sample standard deviation over the mean.
+     * Values that are all 0, e.g. energy of a counter that did not tick, have
+     * no variation.
+     */
+    static double cov(double[] values) {
+        double mean = 0;
+        for (double value : values) {
+            mean += value;
+        }
+        mean /= values.length;
+        if (mean == 0) {
+            return 0;
+        }
+
+        double squares = 0;
+        for (double value : values) {
+            squares += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(squares / (values.length - 1)) / mean;
+    }
+
+    private static Meter openMeter() {
+        try {
+            return Meter.open();
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static double read(Meter meter, double[] energy) throws IOException {
+        if (meter == null) {
+            return 0;
+        }
+        meter.read(energy);
+        return energy[Meter.PKG];
+    }
+}
@@ -0,0 +1,136 @@
+package energy;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs several benchmarks one after the other in a single JVM, each
+ * {@code program} class in its own {@link ClassLoader}:
+ *
+ * <pre>{@code
+ * java ... -cp harness.jar energy.Suite suite.txt
+ * }</pre>
+ *
+ * <p>Every line of the suite file names a benchmark directory, its class
+ * path without the harness and its input, separated by tabs. The input is
+ * either the arguments of {@code main} or {@code < file} for stdin, with
+ * paths relative to the directory. Inputs are read into memory before the
+ * first benchmark starts, and the stdout of each benchmark goes to
+ * {@code output-<benchmark>.txt}.
+ *
+ * <p>The harness classes are shared, so the RAPL backend, the worker pools
+ * and the JIT profile of the harness carry over from one benchmark to the
+ * next. {@code RAPL_ITERATIONS} counts the windows of the whole suite and is
+ * split evenly between the benchmarks, which run in a random order seeded
+ * by {@code -Denergy.suite.seed} when given. The RAPL CSV and
+ * the logs of the listeners get the rows of every benchmark in that order,
+ * and {@value #SUITE_CSV} names the benchmark of each window.
+ */
+public final class Suite {
+    static final String SUITE_CSV = "suite.csv";
+
+    private Suite() {
+    }
+
+    public static void main(String[] args) throws Throwable {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: energy.Suite <suite file>");
+        }
+        List<Entry> entries = new ArrayList<>();
+        for (String line : Files.readAllLines(Path.of(args[0]))) {
+            if (!line.isBlank()) {
+                entries.add(Entry.parse(line));
+            }
+        }
+        if (entries.isEmpty() || Harness.iterations() % entries.size() != 0) {
+            throw new IllegalArgumentException("RAPL_ITERATIONS=" + Harness.iterations()
+                    + " is not a multiple of the " + entries.size() + " benchmarks of " + args[0]);
+        }
+        int windows = Harness.iterations() / entries.size();
+        Harness.limitWindows(windows);
+
+        long seed = Long.getLong("energy.suite.seed", System.nanoTime());
+        Collections.shuffle(entries, new Random(seed));
+
+        InputStream stdin = System.in;
+        PrintStream stdout = System.out;
+        StringBuilder rows = new StringBuilder();
+        int window = 0;
+        for (int order = 0; order < entries.size(); order++) {
+            Entry entry = entries.get(order);
+            try (URLClassLoader loader = new URLClassLoader(entry.classPath, Suite.class.getClassLoader());
+                 PrintStream out = new PrintStream(new BufferedOutputStream(
+                         new FileOutputStream("output-" + entry.name + ".txt"), 1 << 16), false)) {
+                System.setIn(new ByteArrayInputStream(entry.input));
+                System.setOut(out);
+                Thread.currentThread().setContextClassLoader(loader);
+                Class.forName("program", true, loader)
+                        .getMethod("main", String[].class)
+                        .invoke(null, (Object) entry.args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                System.setIn(stdin);
+                System.setOut(stdout);
+                Thread.currentThread().setContextClassLoader(Suite.class.getClassLoader());
+            }
+            for (int i = 0; i < windows; i++) {
+                rows.append(window++).append(',').append(order).append(',')
+                        .append(entry.name).append(',').append(seed).append('\n');
+            }
+        }
+
+        // The final start of the RAPL protocol, which closes the CSV
+        if (Rapl.start() != 0) {
+            throw new IllegalStateException("The RAPL backend expects more windows than the suite ran");
+        }
+        try {
+            Path csv = Path.of(SUITE_CSV);
+            if (!Files.exists(csv)) {
+                Files.writeString(csv, "Window,Order,Benchmark,Seed\n", StandardCharsets.US_ASCII);
+            }
+            Files.writeString(csv, rows, StandardCharsets.US_ASCII, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Entry(String name, URL[] classPath, String[] args, byte[] input) {
+        static Entry parse(String line) throws IOException {
+            String[] fields = line.split("\t", -1);
+            if (fields.length != 3) {
+                throw new IllegalArgumentException("Expected <directory>\\t<class path>\\t<input>: " + line);
+            }
+            Path directory = Path.of(fields[0]);
+            String[] paths = fields[1].isBlank() ? new String[0] : fields[1].trim().split("[:\\s]+");
+            URL[] classPath = new URL[paths.length];
+            for (int i = 0; i < paths.length; i++) {
+                classPath[i] = directory.resolve(paths[i]).toUri().toURL();
+            }
+
+            String input = fields[2].trim();
+            if (input.startsWith("<")) {
+                return new Entry(directory.getFileName().toString(), classPath, new String[0],
+                        Files.readAllBytes(directory.resolve(input.substring(1).trim())));
+            }
+            return new Entry(directory.getFileName().toString(), classPath,
+                    input.isEmpty() ? new String[0] : input.split("\\s+"), new byte[0]);
+        }
+    }
+}
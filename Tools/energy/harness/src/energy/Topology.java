@@ -0,0 +1,77 @@
+package energy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The online logical CPUs and the physical core and package each belongs to,
+ * read from {@code /sys/devices/system/cpu}.
+ */
+final class Topology {
+    static final Path SYSFS = Path.of("/sys/devices/system/cpu");
+
+    /**
+     * A logical CPU. {@code core} is the lowest CPU of its SMT siblings and
+     * {@code thread} its index among the siblings that are used.
+     */
+    record Cpu(int id, int pkg, int core, int thread) {
+    }
+
+    /** Sorted by package, then core, then CPU, so siblings are adjacent. */
+    final List<Cpu> cpus;
+
+    /** The CPUs of {@code root} that are also set in {@code allowed}. */
+    Topology(Path root, BitSet allowed) throws IOException {
+        BitSet online = parseList(Files.readString(root.resolve("online")));
+        online.and(allowed);
+
+        List<Cpu> cpus = new ArrayList<>();
+        for (int id = online.nextSetBit(0); id >= 0; id = online.nextSetBit(id + 1)) {
+            Path topology = root.resolve("cpu" + id).resolve("topology");
+            int pkg = Integer.parseInt(Files.readString(topology.resolve("physical_package_id")).trim());
+            int core = parseList(Files.readString(topology.resolve("thread_siblings_list"))).nextSetBit(0);
+            cpus.add(new Cpu(id, pkg, core, 0));
+        }
+        cpus.sort(Comparator.comparingInt(Cpu::pkg).thenComparingInt(Cpu::core).thenComparingInt(Cpu::id));
+
+        for (int i = 1; i < cpus.size(); i++) {
+            Cpu previous = cpus.get(i - 1);
+            Cpu cpu = cpus.get(i);
+            if (cpu.pkg() == previous.pkg() && cpu.core() == previous.core()) {
+                cpus.set(i, new Cpu(cpu.id(), cpu.pkg(), cpu.core(), previous.thread() + 1));
+            }
+        }
+        this.cpus = List.copyOf(cpus);
+    }
+
+    static Topology read(BitSet allowed) {
+        try {
+            return new Topology(SYSFS, allowed);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Parses a sysfs cpu list such as {@code 0-3,8,10-11}. */
+    static BitSet parseList(String list) {
+        BitSet cpus = new BitSet();
+        for (String range : list.trim().split(",")) {
+            if (range.isEmpty()) {
+                continue;
+            }
+            int dash = range.indexOf('-');
+            if (dash < 0) {
+                cpus.set(Integer.parseInt(range));
+            } else {
+                cpus.set(Integer.parseInt(range, 0, dash, 10), Integer.parseInt(range, dash + 1, range.length(), 10) + 1);
+            }
+        }
+        return cpus;
+    }
+}
@@ -0,0 +1,103 @@
+package energy;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The tasks of one parallel section, run on an executor that may be shared
+ * with other sections. Shutting the scope down only stops it from taking
+ * new tasks, and it terminates once its own tasks are done. An executor
+ * {@code owned} by the scope is shut down with it.
+ */
+final class WorkerScope extends AbstractExecutorService {
+    private final ExecutorService executor;
+    private final boolean owned;
+
+    private final Object lock = new Object();
+    private int pending = 0;
+    private boolean shutdown = false;
+
+    WorkerScope(ExecutorService executor, boolean owned) {
+        this.executor = executor;
+        this.owned = owned;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        synchronized (lock) {
+            if (shutdown) {
+                throw new RejectedExecutionException("Worker scope is shut down");
+            }
+            pending++;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    done();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            done();
+            throw e;
+        }
+    }
+
+    private void done() {
+        synchronized (lock) {
+            if (--pending == 0) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+        }
+        if (owned) {
+            executor.shutdown();
+        }
+    }
+
+    /** Running tasks of a shared executor are not interrupted, cancel their futures instead. */
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        return owned ? executor.shutdownNow() : List.of();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        synchronized (lock) {
+            return shutdown;
+        }
+    }
+
+    @Override
+    public boolean isTerminated() {
+        synchronized (lock) {
+            return shutdown && pending == 0;
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (lock) {
+            while (!(shutdown && pending == 0)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+            }
+        }
+        return !owned || executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+}
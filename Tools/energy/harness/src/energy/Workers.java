@@ -0,0 +1,172 @@
+package energy;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The threads the parallel benchmarks run their tasks on, chosen once with
+ * {@code -Dbench.runtime}:
+ * <ul>
+ *   <li>{@code fresh} (default) runs every program as it did itself: a new
+ *       pool of platform threads for every parallel section, as large as
+ *       {@link #open(int)} asks, or one pool for the whole process with
+ *       {@link #openShared()}</li>
+ *   <li>{@code platform} keeps one fixed pool of platform threads for the
+ *       whole process</li>
+ *   <li>{@code virtual} starts a virtual thread per task</li>
+ *   <li>{@code forkjoin} uses {@link ForkJoinPool#commonPool()}</li>
+ *   <li>{@code stealing} keeps one work-stealing pool for the whole process</li>
+ * </ul>
+ *
+ * <p>A parallel section opens a scope, submits its tasks to it and closes
+ * it, which waits for the tasks of that scope only:
+ *
+ * <pre>{@code
+ * try (ExecutorService pool = Workers.open()) {
+ *     for (int i = 0; i < Workers.threads(); i++) {
+ *         pool.execute(task);
+ *     }
+ * }
+ * }</pre>
+ *
+ * <p>Pools kept for the whole process use daemon threads, so they never
+ * hold the JVM open.
+ *
+ * <p>{@code -Dbench.threads} sets how many threads the work is spread over,
+ * defaulting to the number of available processors. With
+ * {@code -Dbench.affinity} every platform thread of the pools pins itself to
+ * a CPU as it starts, see {@link Affinity}. Virtual threads are not pinned.
+ */
+public final class Workers {
+    enum Model {
+        FRESH, PLATFORM, VIRTUAL, FORKJOIN, STEALING;
+
+        static Model of(String name) {
+            return switch (name) {
+                case "fresh" -> FRESH;
+                case "platform" -> PLATFORM;
+                case "virtual" -> VIRTUAL;
+                case "forkjoin" -> FORKJOIN;
+                case "stealing" -> STEALING;
+                default -> throw new IllegalArgumentException("Unknown bench.runtime \"" + name + "\"");
+            };
+        }
+    }
+
+    static final Model MODEL = Model.of(System.getProperty("bench.runtime", "fresh"));
+
+    private static final int THREADS =
+            Integer.getInteger("bench.threads", Runtime.getRuntime().availableProcessors());
+
+    private Workers() {
+    }
+
+    /** Number of threads a benchmark should spread its work over. */
+    public static int threads() {
+        return THREADS;
+    }
+
+    /**
+     * Tags {@code task} with its type, e.g. the depth of a binary-trees task,
+     * so {@code -Denergy.cores} can attribute energy to it, see
+     * {@link CoreEnergy}. Returns {@code task} itself otherwise.
+     */
+    public static Runnable task(String type, Runnable task) {
+        if (!CoreEnergy.enabled()) {
+            return task;
+        }
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                CoreEnergy.record(type, System.nanoTime() - start);
+            }
+        };
+    }
+
+    /** {@link #task(String, Runnable)} for tasks with a result. */
+    public static <T> Callable<T> task(String type, Callable<T> task) {
+        if (!CoreEnergy.enabled()) {
+            return task;
+        }
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                return task.call();
+            } finally {
+                CoreEnergy.record(type, System.nanoTime() - start);
+            }
+        };
+    }
+
+    /** Opens a scope for the tasks of one parallel section. */
+    public static ExecutorService open() {
+        return open(threads());
+    }
+
+    /**
+     * Opens a scope whose {@code fresh} pool starts {@code threads} threads,
+     * for a program that ran more threads than {@link #threads()} at once.
+     * The other runtimes keep their own size.
+     */
+    public static ExecutorService open(int threads) {
+        return switch (MODEL) {
+            case FRESH -> new WorkerScope(Executors.newFixedThreadPool(threads, factory(false)), true);
+            case PLATFORM -> new WorkerScope(Shared.PLATFORM, false);
+            case VIRTUAL -> new WorkerScope(Executors.newVirtualThreadPerTaskExecutor(), true);
+            case FORKJOIN -> new WorkerScope(ForkJoinPool.commonPool(), false);
+            case STEALING -> new WorkerScope(Shared.STEALING, false);
+        };
+    }
+
+    /**
+     * Opens a scope that runs on one {@link ForkJoinPool} kept for the whole
+     * process under {@code fresh}, for a program that kept a static pool.
+     * The other runtimes run it as {@link #open()} does.
+     */
+    public static ExecutorService openShared() {
+        if (MODEL == Model.FRESH) {
+            return new WorkerScope(Shared.FRESH, false);
+        }
+        return open();
+    }
+
+    /**
+     * Names the platform threads of the pools after the runtime, pinning
+     * them in the order they are created when an affinity is set.
+     */
+    static ThreadFactory factory(boolean daemon) {
+        ThreadFactory factory = Thread.ofPlatform()
+                .name("worker-" + MODEL.name().toLowerCase() + "-", 0)
+                .daemon(daemon)
+                .factory();
+        if (!Affinity.enabled()) {
+            return factory;
+        }
+
+        AtomicInteger workers = new AtomicInteger();
+        return task -> {
+            int worker = workers.getAndIncrement();
+            return factory.newThread(() -> {
+                Affinity.pin(worker);
+                task.run();
+            });
+        };
+    }
+
+    /** Pools created on first use, so only the selected one is started. */
+    private static final class Shared {
+        static final ExecutorService FRESH = new ForkJoinPool(threads(), Affinity.enabled()
+                ? new PinnedWorkerFactory()
+                : ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false);
+        static final ExecutorService PLATFORM = Executors.newFixedThreadPool(threads(), factory(true));
+        static final ExecutorService STEALING = Affinity.enabled()
+                ? new ForkJoinPool(threads(), new PinnedWorkerFactory(), null, true)
+                : Executors.newWorkStealingPool(threads());
+    }
+}
@@ -0,0 +1,64 @@
+package energy.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One RAPL window of the harness. Its start and duration cover the window, so
+ * {@code jdk.GarbageCollection}, {@code jdk.Compilation} and
+ * {@code jdk.SafepointBegin} events can be matched against it.
+ *
+ * <p>Energy is read from {@link energy.Meter} and is {@code NaN} when neither
+ * powercap nor the msr device is readable.
+ */
+@Name("energy.BenchmarkIteration")
+@Label("Benchmark Iteration")
+@Category("Energy")
+@Description("A measured window of the energy harness")
+@StackTrace(false)
+final class BenchmarkIteration extends Event {
+    @Label("Iteration")
+    @Description("Index of the window, counted from 0")
+    int iteration;
+
+    @Label("Core Energy")
+    @Description("Joules counted by the core domain, PP0 on Intel")
+    double core;
+
+    @Label("Uncore Energy")
+    @Description("Joules counted by the uncore domain, PP1 on Intel")
+    double uncore;
+
+    @Label("Package Energy")
+    @Description("Joules counted by the package domain of every socket")
+    double pkg;
+
+    @Label("DRAM Energy")
+    @Description("Joules counted by the DRAM domain")
+    double dram;
+
+    @Label("Allocated")
+    @Description("Heap allocated by all threads, -1 when not supported by the JVM")
+    @DataAmount
+    long allocated;
+
+    @Label("GC Count")
+    @Description("Collections of every collector")
+    long gcCount;
+
+    @Label("GC Time")
+    @Description("Accumulated collection time of every collector")
+    @Timespan(Timespan.MILLISECONDS)
+    long gcTime;
+
+    @Label("Compilation Time")
+    @Description("Time spent in the JIT compilers, -1 when not supported by the JVM")
+    @Timespan(Timespan.MILLISECONDS)
+    long compilationTime;
+}
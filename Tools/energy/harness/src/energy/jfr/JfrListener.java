@@ -0,0 +1,134 @@
+package energy.jfr;
+
+import energy.IterationListener;
+import energy.Meter;
+
+import java.io.IOException;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+
+import jdk.jfr.EventType;
+
+/**
+ * Commits a {@link BenchmarkIteration} per window while a recording has the
+ * event enabled, e.g. under {@code -XX:StartFlightRecording}. Without a
+ * recording nothing is sampled.
+ *
+ * <p>Loaded by {@link IterationListener#load()}. JVMs without {@code jdk.jfr},
+ * such as Semeru, build the harness without this package.
+ */
+public final class JfrListener implements IterationListener {
+    private static final EventType TYPE = EventType.getEventType(BenchmarkIteration.class);
+
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private Meter meter;
+    private boolean meterMissing = false;
+    private final double[] joulesStart = new double[Meter.DOMAINS];
+    private final double[] joulesEnd = new double[Meter.DOMAINS];
+
+    private BenchmarkIteration event;
+    private long allocated;
+    private long gcCount;
+    private long gcTime;
+    private long compilationTime;
+
+    public JfrListener() {
+    }
+
+    @Override
+    public void beforeIteration() {
+        if (!TYPE.isEnabled()) {
+            event = null;
+            return;
+        }
+
+        event = new BenchmarkIteration();
+        allocated = allocatedBytes();
+        gcCount = gcCount();
+        gcTime = gcTime();
+        compilationTime = compilationTime();
+        readMeter(joulesStart);
+        event.begin();
+    }
+
+    @Override
+    public void afterIteration(int iteration) {
+        if (event == null) {
+            return;
+        }
+
+        event.end();
+        readMeter(joulesEnd);
+        if (!event.shouldCommit()) {
+            return;
+        }
+
+        event.iteration = iteration;
+        event.core = joulesEnd[Meter.CORE] - joulesStart[Meter.CORE];
+        event.uncore = joulesEnd[Meter.UNCORE] - joulesStart[Meter.UNCORE];
+        event.pkg = joulesEnd[Meter.PKG] - joulesStart[Meter.PKG];
+        event.dram = joulesEnd[Meter.DRAM] - joulesStart[Meter.DRAM];
+        event.allocated = allocated < 0 ? -1 : allocatedBytes() - allocated;
+        event.gcCount = gcCount() - gcCount;
+        event.gcTime = gcTime() - gcTime;
+        event.compilationTime = compilationTime < 0 ? -1 : compilationTime() - compilationTime;
+        event.commit();
+    }
+
+    private void readMeter(double[] joules) {
+        if (meter == null && !meterMissing) {
+            try {
+                meter = Meter.open();
+            } catch (IOException | RuntimeException e) {
+                meterMissing = true;
+            }
+        }
+        try {
+            if (meter != null) {
+                meter.read(joules);
+                return;
+            }
+        } catch (IOException e) {
+            meterMissing = true;
+            meter = null;
+        }
+        Arrays.fill(joules, Double.NaN);
+    }
+
+    private long allocatedBytes() {
+        if (threads instanceof com.sun.management.ThreadMXBean hotspot) {
+            return hotspot.getTotalThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    private long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            count += Math.max(collector.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    private long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            time += Math.max(collector.getCollectionTime(), 0);
+        }
+        return time;
+    }
+
+    private long compilationTime() {
+        if (compiler == null || !compiler.isCompilationTimeMonitoringSupported()) {
+            return -1;
+        }
+        return compiler.getTotalCompilationTime();
+    }
+}
@@ -0,0 +1,200 @@
+package energy.methods;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.classfile.ClassBuilder;
+import java.lang.classfile.ClassElement;
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassHierarchyResolver;
+import java.lang.classfile.ClassModel;
+import java.lang.classfile.CodeBuilder;
+import java.lang.classfile.CodeElement;
+import java.lang.classfile.CodeTransform;
+import java.lang.classfile.Label;
+import java.lang.classfile.MethodModel;
+import java.lang.classfile.MethodTransform;
+import java.lang.classfile.instruction.ReturnInstruction;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.ConstantDescs;
+import java.lang.constant.MethodTypeDesc;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.AccessFlag;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Wraps the methods matched by {@code -Denergy.methods} in calls to
+ * {@link MethodProfiler} as their classes are loaded, installed by
+ * {@code energy.StartupAgent} under {@code -javaagent:harness.jar=methods}.
+ *
+ * <p>The property is a comma separated list of {@code Class::method},
+ * {@code Class::*} or {@code method} patterns, e.g.
+ * {@code NBodySystem::advance,countFlips}. Classes are matched by their
+ * simple name, without package or enclosing classes, or by the one of a
+ * superclass, so {@code AbstractBuffer::selectNucleotides} wraps the
+ * implementations of its subclasses. Constructors, static initializers,
+ * bridges and methods without code are never wrapped.
+ *
+ * <p>Each wrapped method enters the profiler before its first instruction
+ * and exits it before every return and in a handler for any exception
+ * thrown out of it. The classes are rewritten with the
+ * {@code java.lang.classfile} API of JDK 23, a preview the harness is built
+ * with, so the package is left out of harnesses for older JVMs.
+ */
+public final class MethodAgent implements ClassFileTransformer {
+    static final String PROPERTY = "energy.methods";
+
+    private static final ClassDesc PROFILER = ClassDesc.of(MethodProfiler.class.getName());
+    private static final MethodTypeDesc HOOK = MethodTypeDesc.of(ConstantDescs.CD_void, ConstantDescs.CD_int);
+
+    private final List<String[]> patterns = new ArrayList<>();
+
+    private MethodAgent(String property) {
+        for (String pattern : property.split(",")) {
+            pattern = pattern.strip();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            int separator = pattern.indexOf("::");
+            patterns.add(separator < 0
+                    ? new String[] { "*", pattern }
+                    : new String[] { pattern.substring(0, separator), pattern.substring(separator + 2) });
+        }
+        if (patterns.isEmpty()) {
+            throw new IllegalArgumentException(PROPERTY + " has no Class::method pattern");
+        }
+    }
+
+    /** Called reflectively by {@code energy.StartupAgent}. */
+    public static void install(Instrumentation instrumentation) {
+        String property = System.getProperty(PROPERTY);
+        if (property == null) {
+            throw new IllegalArgumentException("The method agent needs -D" + PROPERTY + "=Class::method,...");
+        }
+        instrumentation.addTransformer(new MethodAgent(property));
+    }
+
+    @Override
+    public byte[] transform(ClassLoader loader, String name, Class<?> redefined,
+            ProtectionDomain domain, byte[] bytes) {
+        // The JDK and the harness itself, including the profiler the wrapped
+        // methods call, are left alone
+        if (loader == null || loader == ClassLoader.getPlatformClassLoader()
+                || name == null || name.startsWith("energy/")) {
+            return null;
+        }
+
+        try {
+            ClassFile file = ClassFile.of(ClassFile.ClassHierarchyResolverOption.of(
+                    ClassHierarchyResolver.defaultResolver().orElse(ClassHierarchyResolver.ofResourceParsing(loader))));
+            ClassModel model = file.parse(bytes);
+            String simple = simpleName(model.thisClass().asInternalName());
+            List<String> types = types(file, model, loader);
+
+            Set<String> selected = new HashSet<>();
+            for (MethodModel method : model.methods()) {
+                if (selects(types, method)) {
+                    selected.add(method.methodName().stringValue() + method.methodType().stringValue());
+                }
+            }
+            if (selected.isEmpty()) {
+                return null;
+            }
+
+            return file.transformClass(model, (ClassBuilder builder, ClassElement element) -> {
+                if (element instanceof MethodModel method
+                        && selected.contains(method.methodName().stringValue() + method.methodType().stringValue())) {
+                    int id = MethodProfiler.register(simple + "::" + method.methodName().stringValue());
+                    builder.transformMethod(method, MethodTransform.transformingCode(new Wrap(id)));
+                } else {
+                    builder.with(element);
+                }
+            });
+        } catch (RuntimeException e) {
+            // A transformer that throws is silently ignored by the JVM
+            System.err.println("energy methods: " + name + " left unwrapped, " + e);
+            return null;
+        }
+    }
+
+    private boolean selects(List<String> types, MethodModel method) {
+        String name = method.methodName().stringValue();
+        if (name.startsWith("<") || method.code().isEmpty() || method.flags().has(AccessFlag.BRIDGE)) {
+            return false;
+        }
+        for (String[] pattern : patterns) {
+            boolean type = pattern[0].equals("*") || types.contains(pattern[0]);
+            if (type && (pattern[1].equals("*") || pattern[1].equals(name))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The simple names of the class and of its superclasses up to the first
+     * that is not readable from {@code loader}, such as those of the JDK.
+     */
+    private static List<String> types(ClassFile file, ClassModel model, ClassLoader loader) {
+        List<String> types = new ArrayList<>();
+        types.add(simpleName(model.thisClass().asInternalName()));
+        while (model.superclass().isPresent()) {
+            String parent = model.superclass().get().asInternalName();
+            types.add(simpleName(parent));
+            try (InputStream in = loader.getResourceAsStream(parent + ".class")) {
+                if (in == null || parent.startsWith("java/")) {
+                    break;
+                }
+                model = file.parse(in.readAllBytes());
+            } catch (IOException e) {
+                break;
+            }
+        }
+        return types;
+    }
+
+    /** {@code program$NBodySystem} and {@code a/b/NBodySystem} are both {@code NBodySystem}. */
+    private static String simpleName(String internalName) {
+        String name = internalName.substring(internalName.lastIndexOf('/') + 1);
+        return name.substring(name.lastIndexOf('$') + 1);
+    }
+
+    /** Enters {@link MethodProfiler} first and exits it on every way out. */
+    private static final class Wrap implements CodeTransform {
+        private final int id;
+        private Label start;
+
+        Wrap(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public void atStart(CodeBuilder builder) {
+            builder.ldc(id);
+            builder.invokestatic(PROFILER, "enter", HOOK);
+            start = builder.newBoundLabel();
+        }
+
+        @Override
+        public void accept(CodeBuilder builder, CodeElement element) {
+            if (element instanceof ReturnInstruction) {
+                builder.ldc(id);
+                builder.invokestatic(PROFILER, "exit", HOOK);
+            }
+            builder.with(element);
+        }
+
+        @Override
+        public void atEnd(CodeBuilder builder) {
+            Label handler = builder.newBoundLabel();
+            builder.ldc(id);
+            builder.invokestatic(PROFILER, "exit", HOOK);
+            builder.athrow();
+            builder.exceptionCatchAll(start, handler, handler);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package energy.methods;
+
+import energy.IterationListener;
+import energy.Meter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Logs the calls of the methods wrapped by {@link MethodAgent} in every
+ * window, loaded by {@link IterationListener#load()} under
+ * {@code -Denergy.methods}.
+ *
+ * <p>After the last window
+ * {@code Iteration,Method,Calls,TimedCalls,Nanos,ProcessCpuNanos,PkgMicrojoules,DramMicrojoules}
+ * rows are appended to {@value #METHODS_CSV}, one per method called in a
+ * window. {@code Nanos} is the time of its outermost calls estimated from the
+ * timed ones, summed over threads. The energy of a method is its share of the
+ * energy of the window in proportion to its time over the CPU time of the
+ * whole process, -1 without a {@link Meter} or process CPU time. Time a method
+ * spends blocked counts as if it used a CPU, and the energy of idle CPUs is
+ * shared like the rest.
+ */
+public final class MethodLog implements IterationListener {
+    static final String METHODS_CSV = "methods.csv";
+
+    private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    private final StringBuilder rows = new StringBuilder();
+    private final double[] joulesStart = new double[Meter.DOMAINS];
+    private final double[] joulesEnd = new double[Meter.DOMAINS];
+    private final Meter meter = openMeter();
+    private long[][] totals;
+    private long cpuStart;
+
+    public MethodLog() {
+    }
+
+    @Override
+    public void beforeIteration() {
+        totals = MethodProfiler.totals(MethodProfiler.names().size());
+        cpuStart = cpuNanos();
+        read(joulesStart);
+    }
+
+    @Override
+    public void afterIteration(int iteration) {
+        read(joulesEnd);
+        long cpu = cpuStart < 0 ? -1 : cpuNanos() - cpuStart;
+        List<String> names = MethodProfiler.names();
+        long[][] end = MethodProfiler.totals(names.size());
+
+        for (int id = 0; id < names.size(); id++) {
+            long calls = end[0][id] - at(totals[0], id);
+            if (calls == 0) {
+                continue;
+            }
+            long outer = end[1][id] - at(totals[1], id);
+            long timed = end[2][id] - at(totals[2], id);
+            long nanos = timed == 0 ? 0 : Math.round((end[3][id] - at(totals[3], id)) * (double) outer / timed);
+            rows.append(iteration).append(',').append(names.get(id).replace(',', ' '))
+                    .append(',').append(calls)
+                    .append(',').append(timed)
+                    .append(',').append(nanos)
+                    .append(',').append(cpu)
+                    .append(',').append(share(Meter.PKG, nanos, cpu))
+                    .append(',').append(share(Meter.DRAM, nanos, cpu))
+                    .append('\n');
+        }
+    }
+
+    @Override
+    public void finish() {
+        try (meter; Writer writer = Files.newBufferedWriter(Path.of(METHODS_CSV), StandardCharsets.US_ASCII,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (Files.size(Path.of(METHODS_CSV)) == 0) {
+                writer.write("Iteration,Method,Calls,TimedCalls,Nanos,ProcessCpuNanos,PkgMicrojoules,DramMicrojoules\n");
+            }
+            writer.append(rows);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        rows.setLength(0);
+    }
+
+    private long share(int domain, long nanos, long cpu) {
+        if (meter == null || cpu <= 0) {
+            return -1;
+        }
+        return Math.round((joulesEnd[domain] - joulesStart[domain]) * 1e6 * nanos / cpu);
+    }
+
+    private void read(double[] joules) {
+        if (meter == null) {
+            return;
+        }
+        try {
+            meter.read(joules);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Meter openMeter() {
+        try {
+            return Meter.open();
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private long cpuNanos() {
+        if (os instanceof com.sun.management.OperatingSystemMXBean hotspot) {
+            return hotspot.getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    /** Methods registered during the window have no counts before it. */
+    private static long at(long[] totals, int id) {
+        return id < totals.length ? totals[id] : 0;
+    }
+}
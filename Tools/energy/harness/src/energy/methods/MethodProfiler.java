@@ -0,0 +1,129 @@
+package energy.methods;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Counts and times the calls of the methods wrapped by {@link MethodAgent}
+ * on the thread making them, so the hooks neither lock nor contend.
+ *
+ * <p>Only the outermost of recursive calls is timed, and of those a thread
+ * times the first {@code -Denergy.methods.exact} of each method, 1024 by
+ * default, and from then on one in {@code -Denergy.methods.period}, 64 by
+ * default and rounded up to a power of two. The time of a method is the one
+ * of its timed calls scaled to all of its outermost calls, so a hot method
+ * pays for {@link System#nanoTime()} on one call in a period and cold ones
+ * are timed exactly.
+ */
+public final class MethodProfiler {
+    private static final long EXACT = Long.getLong("energy.methods.exact", 1024);
+    private static final long MASK = Long.highestOneBit(Math.max(Long.getLong("energy.methods.period", 64) * 2 - 1, 1)) - 1;
+    private static final long UNTIMED = Long.MIN_VALUE;
+
+    private static final List<String> NAMES = new ArrayList<>();
+    private static final List<Calls> THREADS = new ArrayList<>();
+    private static final ThreadLocal<Calls> CALLS = ThreadLocal.withInitial(() -> {
+        Calls calls = new Calls();
+        synchronized (THREADS) {
+            THREADS.add(calls);
+        }
+        return calls;
+    });
+
+    private MethodProfiler() {
+    }
+
+    /** Called by a wrapped method before its first instruction. */
+    public static void enter(int id) {
+        Calls calls = CALLS.get();
+        calls.fit(id);
+        calls.calls[id]++;
+        long start = UNTIMED;
+        if (calls.active[id]++ == 0) {
+            long outer = ++calls.outer[id];
+            if (outer <= EXACT || (outer & MASK) == 0) {
+                calls.timed[id]++;
+                start = System.nanoTime();
+            }
+        }
+        calls.push(start);
+    }
+
+    /** Called by a wrapped method when it returns or throws. */
+    public static void exit(int id) {
+        Calls calls = CALLS.get();
+        long start = calls.starts[--calls.depth];
+        calls.active[id]--;
+        if (start != UNTIMED) {
+            calls.nanos[id] += System.nanoTime() - start;
+        }
+    }
+
+    /** The id of the method {@code name}, the same for every overload. */
+    static int register(String name) {
+        synchronized (NAMES) {
+            int id = NAMES.indexOf(name);
+            if (id < 0) {
+                id = NAMES.size();
+                NAMES.add(name);
+            }
+            return id;
+        }
+    }
+
+    static List<String> names() {
+        synchronized (NAMES) {
+            return List.copyOf(NAMES);
+        }
+    }
+
+    /**
+     * The calls, outermost calls, timed calls and timed nanoseconds of
+     * every method summed over all threads so far, read between windows
+     * while the threads of the benchmark are done with their work.
+     */
+    static long[][] totals(int methods) {
+        long[][] totals = new long[4][methods];
+        synchronized (THREADS) {
+            for (Calls calls : THREADS) {
+                for (int id = 0; id < Math.min(methods, calls.calls.length); id++) {
+                    totals[0][id] += calls.calls[id];
+                    totals[1][id] += calls.outer[id];
+                    totals[2][id] += calls.timed[id];
+                    totals[3][id] += calls.nanos[id];
+                }
+            }
+        }
+        return totals;
+    }
+
+    /** The counters of one thread, kept after it ends. */
+    private static final class Calls {
+        long[] calls = new long[0];
+        long[] outer = new long[0];
+        long[] timed = new long[0];
+        long[] nanos = new long[0];
+        int[] active = new int[0];
+        long[] starts = new long[16];
+        int depth;
+
+        void fit(int id) {
+            if (id >= calls.length) {
+                int length = Math.max(id + 1, 2 * calls.length);
+                calls = Arrays.copyOf(calls, length);
+                outer = Arrays.copyOf(outer, length);
+                timed = Arrays.copyOf(timed, length);
+                nanos = Arrays.copyOf(nanos, length);
+                active = Arrays.copyOf(active, length);
+            }
+        }
+
+        void push(long start) {
+            if (depth == starts.length) {
+                starts = Arrays.copyOf(starts, 2 * depth);
+            }
+            starts[depth++] = start;
+        }
+    }
+}
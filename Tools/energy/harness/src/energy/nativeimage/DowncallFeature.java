@@ -0,0 +1,68 @@
+package energy.nativeimage;
+
+import energy.PinnedWorkerFactory;
+
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.ValueLayout;
+
+import org.graalvm.nativeimage.hosted.Feature;
+import org.graalvm.nativeimage.hosted.RuntimeForeignAccess;
+import org.graalvm.nativeimage.hosted.RuntimeReflection;
+
+/**
+ * Registers what the harness looks up at run time with {@code native-image},
+ * which only links the downcall stubs and reflective constructors it was told
+ * about at build time:
+ * <ul>
+ *   <li>{@code start_rapl} and {@code stop_rapl} of {@code librapl_interface}</li>
+ *   <li>{@code sched_setaffinity} and {@code sched_getaffinity}, capturing
+ *       {@code errno}</li>
+ *   <li>{@code syscall}, {@code ioctl}, {@code read} and {@code close} of the
+ *       {@code perf_event_open} counters</li>
+ *   <li>{@link PinnedWorkerFactory}, named by the common pool property, and
+ *       {@code energy.jfr.JfrListener} when the harness has it</li>
+ * </ul>
+ *
+ * <p>Passed with {@code --features=energy.nativeimage.DowncallFeature} by
+ * the {@code native} targets of GraalVM. It needs {@code org.graalvm.nativeimage},
+ * so the harness of other JDKs is built without this package.
+ */
+public final class DowncallFeature implements Feature {
+    public DowncallFeature() {
+    }
+
+    @Override
+    public void duringSetup(DuringSetupAccess access) {
+        RuntimeForeignAccess.registerForDowncall(FunctionDescriptor.of(ValueLayout.JAVA_INT));
+        RuntimeForeignAccess.registerForDowncall(FunctionDescriptor.ofVoid());
+        RuntimeForeignAccess.registerForDowncall(
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_LONG, ValueLayout.ADDRESS),
+                Linker.Option.captureCallState("errno"));
+        RuntimeForeignAccess.registerForDowncall(
+                FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG, ValueLayout.ADDRESS,
+                        ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG),
+                Linker.Option.firstVariadicArg(1), Linker.Option.captureCallState("errno"));
+        RuntimeForeignAccess.registerForDowncall(
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG),
+                Linker.Option.firstVariadicArg(2));
+        RuntimeForeignAccess.registerForDowncall(
+                FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG));
+        RuntimeForeignAccess.registerForDowncall(FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+
+        register(PinnedWorkerFactory.class);
+        Class<?> jfr = access.findClassByName("energy.jfr.JfrListener");
+        if (jfr != null) {
+            register(jfr);
+        }
+    }
+
+    private static void register(Class<?> type) {
+        try {
+            RuntimeReflection.register(type);
+            RuntimeReflection.register(type.getDeclaredConstructor());
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(type.getName() + " has no constructor without parameters", e);
+        }
+    }
+}
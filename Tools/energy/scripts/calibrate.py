@@ -0,0 +1,51 @@
+from utils import read_csv_safely, calculate_energy
+import pandas as pd
+import argparse
+
+
+def parse_args():
+    parser = argparse.ArgumentParser()
+    parser.add_argument("rapl", help="RAPL CSV file of a calibration run.")
+    parser.add_argument("calibration", help="calibration.csv of the same run, one row per loop.")
+    parser.add_argument("-o", "--output", type=str, default="overhead.csv", help="Output CSV file.")
+    return parser.parse_args()
+
+
+def main():
+    args = parse_args()
+
+    rapl = read_csv_safely(args.rapl)
+    calibration = read_csv_safely(args.calibration)
+    if len(rapl) != calibration["Windows"].sum():
+        raise RuntimeError(f"{args.rapl} has {len(rapl)} rows but {args.calibration} has {calibration['Windows'].sum()} windows")
+
+    power_unit = int(args.rapl.split("_")[-1].split(".")[0])
+    pkg, core, uncore, dram, time = calculate_energy(rapl, power_unit)
+
+    # Windows far shorter than the RAPL and millisecond clock updates read 0
+    # or a whole update, so only their mean over many windows is meaningful
+    rows = []
+    first = 0
+    for loop in calibration.itertuples(index=False):
+        last = first + loop.Windows
+        rows.append(
+            {
+                "Spin": loop.Spin,
+                "Windows": loop.Windows,
+                "Window Time (ms)": time.iloc[first:last].mean(),
+                "Window Package Energy (J)": pkg.iloc[first:last].mean(),
+                "Window DRAM Energy (J)": dram.iloc[first:last].mean(),
+                "Loop Time (ms)": loop.LoopNanos / 1e6,
+                "Loop Package Energy (J)": loop.LoopPkgMicrojoules / 1e6 if loop.LoopPkgMicrojoules >= 0 else None,
+                "Loop DRAM Energy (J)": loop.LoopDramMicrojoules / 1e6 if loop.LoopDramMicrojoules >= 0 else None,
+            }
+        )
+        first = last
+
+    df = pd.DataFrame(rows).round(6)
+    df.to_csv(args.output, index=False)
+    print(df.to_string(index=False))
+
+
+if __name__ == "__main__":
+    main()
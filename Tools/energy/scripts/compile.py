@@ -8,12 +8,19 @@ import os
 def parse_args():
     parser = argparse.ArgumentParser()
     parser.add_argument("input", nargs="+")
+    parser.add_argument("--overhead", type=str, default=None, help="overhead.csv of the same language, to add corrected columns.")
     return parser.parse_args()
 
 
 def main():
     args = parse_args()
 
+    # The empty loop of the calibration is what every window adds by itself
+    overhead = None
+    if args.overhead:
+        calibration = read_csv_safely(args.overhead)
+        overhead = calibration[calibration["Spin"] == 0].iloc[0]
+
     df_list = []
     for file in args.input:
         p = Path(file)
@@ -28,6 +35,14 @@ def main():
         power_unit = int(file.split("_")[-1].split(".")[0])
         pkg, core, uncore, dram, time = calculate_energy(df, power_unit)
 
+        # Overheads are microseconds and microjoules, so the corrected
+        # values are taken before rounding and keep 6 decimal places
+        corrected = {}
+        if overhead is not None:
+            corrected["Time Corrected (ms)"] = (time - overhead["Window Time (ms)"]).round(6)
+            corrected["Pkg Corrected (J)"] = (pkg - overhead["Window Package Energy (J)"]).round(6)
+            corrected["Dram Corrected (J)"] = (dram - overhead["Window DRAM Energy (J)"]).round(6)
+
         # Round all float values to 2 decimal places
         time = time.round(2)
         pkg = pkg.round(2)
@@ -46,6 +61,8 @@ def main():
                 "Dram (J)": dram,
             }
         )
+        for column, value in corrected.items():
+            tmp_df[column] = value
         df_list.append(tmp_df)
 
     # Concatenate all new DataFrames into one
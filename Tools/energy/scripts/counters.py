@@ -0,0 +1,54 @@
+from utils import read_csv_safely, calculate_energy
+import pandas as pd
+import argparse
+
+
+def parse_args():
+    parser = argparse.ArgumentParser()
+    parser.add_argument("rapl", help="RAPL CSV file.")
+    parser.add_argument("counters", help="counters.csv of the Java harness, one row per RAPL row.")
+    parser.add_argument("-s", "--skip", type=int, default=0, help="Number of RAPL rows to skip.")
+    parser.add_argument("-o", "--output", type=str, default="iterations.csv", help="Output CSV file.")
+    return parser.parse_args()
+
+
+def ratio(numerator, denominator):
+    # Events the CPU does not count are logged as -1
+    valid = (numerator >= 0) & (denominator > 0)
+    return (numerator / denominator).where(valid)
+
+
+def main():
+    args = parse_args()
+
+    rapl = read_csv_safely(args.rapl)
+    counters = read_csv_safely(args.counters)
+    if len(rapl) != len(counters):
+        raise RuntimeError(f"{args.rapl} has {len(rapl)} rows but {args.counters} has {len(counters)}")
+
+    power_unit = int(args.rapl.split("_")[-1].split(".")[0])
+    pkg, core, uncore, dram, time = calculate_energy(rapl, power_unit)
+
+    df = pd.DataFrame(
+        {
+            "Iteration": counters["Iteration"],
+            "Elapsed Time (ms)": time.values,
+            "Package Energy (J)": pkg.values,
+            "DRAM Energy (J)": dram.values,
+            "IPC": ratio(counters["Instructions"], counters["Cycles"]),
+            "Cache Miss Rate": ratio(counters["CacheMisses"], counters["CacheReferences"]),
+            "Branch Miss Rate": ratio(counters["BranchMisses"], counters["Branches"]),
+            "LLC Loads per 1k Instructions": ratio(counters["LlcLoads"], counters["Instructions"]) * 1000,
+            "Energy per Instruction (nJ)": ratio(pkg.reset_index(drop=True) * 1e9, counters["Instructions"]),
+        }
+    )
+    if args.skip > 0:
+        df = df.iloc[args.skip :]
+
+    df = df.round(4)
+    df.to_csv(args.output, index=False)
+    print(df.to_string(index=False))
+
+
+if __name__ == "__main__":
+    main()
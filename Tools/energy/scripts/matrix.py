@@ -0,0 +1,75 @@
+from utils import read_csv_safely, calculate_energy
+import pandas as pd
+import argparse
+import re
+from pathlib import Path
+
+# HotSpot logs e.g. "Pause Young (Normal) (G1 Evacuation Pause) 24M->3M(256M) 3.456ms"
+HOTSPOT_PAUSE = re.compile(r"Pause.* (\d+(?:\.\d+)?)ms$")
+# OpenJ9 logs every stop-the-world phase as an exclusive access
+OPENJ9_PAUSE = re.compile(r'<exclusive-end [^>]*durationms="(\d+(?:\.\d+)?)"')
+
+
+def parse_args():
+    parser = argparse.ArgumentParser()
+    parser.add_argument("cells", nargs="+", help="Cell dirs holding a cell.csv and their measurements.")
+    parser.add_argument("-s", "--skip", type=int, default=0, help="Number of RAPL rows to skip.")
+    parser.add_argument("-o", "--output", type=str, default="matrix.csv", help="Output CSV file.")
+    return parser.parse_args()
+
+
+def gc_pauses(path):
+    total = 0.0
+    with open(path, "r", errors="replace") as file:
+        for line in file:
+            match = HOTSPOT_PAUSE.search(line.rstrip()) or OPENJ9_PAUSE.search(line)
+            if match:
+                total += float(match.group(1))
+    return total
+
+
+def summarize(cell, skip):
+    row = read_csv_safely(cell / "cell.csv").iloc[0].to_dict()
+
+    rapl = [p for pattern in ("Intel_*.csv", "AMD_*.csv", "Powercap_*.csv") for p in cell.glob(pattern)]
+    if not rapl:
+        return row
+
+    file = str(rapl[0])
+    df = read_csv_safely(file)
+    if skip > 0:
+        df = df.iloc[skip:]
+    power_unit = int(file.split("_")[-1].split(".")[0])
+    pkg, core, uncore, dram, time = calculate_energy(df, power_unit)
+
+    row["Elapsed Time (ms)"] = time.mean()
+    row["Package Energy (J)"] = pkg.mean()
+    row["DRAM Energy (J)"] = dram.mean()
+
+    if (cell / "gc.log").exists():
+        row["GC Pause Total (ms)"] = gc_pauses(cell / "gc.log")
+    if (cell / "jit.csv").exists():
+        jit = read_csv_safely(cell / "jit.csv")
+        # Rows after which the next iteration starts from 0 end a JVM run
+        ends = jit[jit["Iteration"].shift(-1, fill_value=0) == 0]
+        row["Compilation Time (ms)"] = jit["CompilationMillis"].iloc[skip:].mean()
+        row["Total Compilation Time (ms)"] = ends["TotalCompilationMillis"].mean()
+        row["Code Cache (KB)"] = jit["CodeCacheBytes"].max() / 1024
+    if (cell / "rss.txt").exists():
+        rss = (cell / "rss.txt").read_text().split()
+        if rss:
+            row["Peak RSS (MB)"] = int(rss[-1]) / 1024
+    return row
+
+
+def main():
+    args = parse_args()
+
+    df = pd.DataFrame([summarize(Path(cell), args.skip) for cell in args.cells])
+    df = df.round(2)
+    df.to_csv(args.output, index=False)
+    print(df.drop(columns=["Flags"]).to_string(index=False))
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,44 @@
+from utils import read_csv_safely, windows
+import pandas as pd
+import argparse
+
+
+def parse_args():
+    parser = argparse.ArgumentParser()
+    parser.add_argument("methods", help="methods.csv of the Java method profiler.")
+    parser.add_argument("-s", "--skip", type=int, default=0, help="Number of windows to skip.")
+    parser.add_argument("-o", "--output", type=str, default="profile.csv", help="Output CSV file.")
+    return parser.parse_args()
+
+
+def main():
+    args = parse_args()
+
+    df = read_csv_safely(args.methods)
+    df["Window"] = windows(df, "Method")
+    df = df[df["Window"] >= args.skip]
+    count = df["Window"].nunique()
+    if count == 0:
+        raise RuntimeError(f"No measured windows in {args.methods}")
+
+    totals = df.groupby("Method")[["Calls", "TimedCalls", "Nanos", "PkgMicrojoules", "DramMicrojoules"]].sum() / count
+    # Every method of a window shares its CPU time
+    cpu = df.groupby("Window")["ProcessCpuNanos"].first()
+    profile = pd.DataFrame(
+        {
+            "Calls": totals["Calls"],
+            "Timed Calls": totals["TimedCalls"],
+            "Time (ms)": totals["Nanos"] / 1e6,
+            "Share of CPU Time (%)": totals["Nanos"] / (cpu.sum() / count) * 100 if (cpu > 0).all() else None,
+            "Package Energy (J)": totals["PkgMicrojoules"] / 1e6 if (df["PkgMicrojoules"] >= 0).all() else None,
+            "DRAM Energy (J)": totals["DramMicrojoules"] / 1e6 if (df["DramMicrojoules"] >= 0).all() else None,
+        }
+    )
+
+    profile = profile.sort_values("Time (ms)", ascending=False).reset_index().round(4)
+    profile.to_csv(args.output, index=False)
+    print(profile.to_string(index=False))
+
+
+if __name__ == "__main__":
+    main()
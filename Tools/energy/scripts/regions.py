@@ -0,0 +1,61 @@
+from utils import read_csv_safely, calculate_energy, windows
+import pandas as pd
+import argparse
+
+
+def parse_args():
+    parser = argparse.ArgumentParser()
+    parser.add_argument("regions", help="regions.csv of the Java harness.")
+    parser.add_argument("--rapl", type=str, default=None, help="RAPL CSV file of the same windows, for the share of each region.")
+    parser.add_argument("-s", "--skip", type=int, default=0, help="Number of windows to skip.")
+    parser.add_argument("-o", "--output", type=str, default="phases.csv", help="Output CSV file.")
+    return parser.parse_args()
+
+
+def main():
+    args = parse_args()
+
+    df = read_csv_safely(args.regions)
+    df = df[df["Iteration"] >= 0].copy()
+    df["Window"] = windows(df, "Region")
+    df = df[df["Window"] >= args.skip]
+    count = df["Window"].nunique()
+    if count == 0:
+        raise RuntimeError(f"No measured windows in {args.regions}")
+
+    totals = df.groupby("Region")[["Count", "Nanos", "PkgMicrojoules", "DramMicrojoules"]].sum() / count
+    summary = pd.DataFrame(
+        {
+            "Count": totals["Count"],
+            "Time (ms)": totals["Nanos"] / 1e6,
+            "Package Energy (J)": totals["PkgMicrojoules"] / 1e6,
+            "DRAM Energy (J)": totals["DramMicrojoules"] / 1e6,
+        }
+    )
+
+    # Nested regions are part of their parent, so its own share excludes them
+    children = {region: [] for region in summary.index}
+    for region in summary.index:
+        parent = region.rpartition("/")[0]
+        if parent in children:
+            children[parent].append(region)
+    summary["Self Package Energy (J)"] = [
+        summary.at[region, "Package Energy (J)"] - summary.loc[children[region], "Package Energy (J)"].sum()
+        for region in summary.index
+    ]
+
+    if args.rapl:
+        rapl = read_csv_safely(args.rapl)
+        if args.skip > 0:
+            rapl = rapl.iloc[args.skip :]
+        power_unit = int(args.rapl.split("_")[-1].split(".")[0])
+        pkg, core, uncore, dram, time = calculate_energy(rapl, power_unit)
+        summary["Share of Package Energy (%)"] = summary["Package Energy (J)"] / pkg.mean() * 100
+
+    summary = summary.reset_index().round(4)
+    summary.to_csv(args.output, index=False)
+    print(summary.to_string(index=False))
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,62 @@
+from utils import read_csv_safely, calculate_energy
+import pandas as pd
+import argparse
+from pathlib import Path
+
+
+def parse_args():
+    parser = argparse.ArgumentParser()
+    parser.add_argument("input", nargs="+", help="RAPL CSV files in <language>/<benchmark>/<threads> dirs.")
+    parser.add_argument("-s", "--skip", type=int, default=0, help="Number of RAPL rows to skip.")
+    parser.add_argument("-o", "--output", type=str, default="scaling.csv", help="Output CSV file.")
+    return parser.parse_args()
+
+
+def main():
+    args = parse_args()
+
+    rows = []
+    for file in args.input:
+        p = Path(file)
+        language = p.parts[-4]
+        benchmark = p.parts[-3]
+        threads = int(p.parts[-2])
+
+        df = read_csv_safely(file)
+        if args.skip > 0:
+            df = df.iloc[args.skip :]
+
+        power_unit = int(file.split("_")[-1].split(".")[0])
+        pkg, core, uncore, dram, time = calculate_energy(df, power_unit)
+
+        rows.append(
+            {
+                "Language": language,
+                "Benchmark": benchmark,
+                "Threads": threads,
+                "Elapsed Time (ms)": time.mean(),
+                "Package Energy (J)": pkg.mean(),
+            }
+        )
+
+    df = pd.DataFrame(rows).sort_values(["Language", "Benchmark", "Threads"])
+
+    # Strong scaling relative to the smallest thread count of each benchmark,
+    # which is a single thread unless --threads says otherwise
+    groups = df.groupby(["Language", "Benchmark"])
+    base_threads = groups["Threads"].transform("first")
+    base_time = groups["Elapsed Time (ms)"].transform("first")
+    base_pkg = groups["Package Energy (J)"].transform("first")
+
+    df["Average Power (W)"] = df["Package Energy (J)"] / df["Elapsed Time (ms)"] * 1000
+    df["Speedup"] = base_threads * base_time / df["Elapsed Time (ms)"]
+    df["Efficiency"] = df["Speedup"] / df["Threads"]
+    df["Energy Ratio"] = df["Package Energy (J)"] / base_pkg
+
+    df = df.round(2)
+    df.to_csv(args.output, index=False)
+    print(df.to_string(index=False))
+
+
+if __name__ == "__main__":
+    main()
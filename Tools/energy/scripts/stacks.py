@@ -0,0 +1,49 @@
+import pandas as pd
+import argparse
+
+
+def parse_args():
+    parser = argparse.ArgumentParser()
+    parser.add_argument("stacks", help="stacks.txt of the Java stack profiler, collapsed stacks with microjoules.")
+    parser.add_argument("-n", "--top", type=int, default=20, help="Number of frames to print.")
+    parser.add_argument("-o", "--output", type=str, default="frames.csv", help="Output CSV file.")
+    return parser.parse_args()
+
+
+def main():
+    args = parse_args()
+
+    # Runs appended to the same file repeat their stacks, which add up
+    total = {}
+    own = {}
+    with open(args.stacks) as f:
+        for line in f:
+            stack, _, microjoules = line.rstrip("\n").rpartition(" ")
+            if not stack:
+                continue
+            joules = int(microjoules) / 1e6
+            frames = stack.split(";")
+            # A recursive frame counts once per stack
+            for frame in set(frames):
+                total[frame] = total.get(frame, 0) + joules
+            own[frames[-1]] = own.get(frames[-1], 0) + joules
+    if not total:
+        raise RuntimeError(f"No stacks in {args.stacks}")
+
+    energy = sum(own.values())
+    frames = pd.DataFrame(
+        {
+            "Frame": list(total),
+            "Package Energy (J)": [total[frame] for frame in total],
+            "Self Package Energy (J)": [own.get(frame, 0) for frame in total],
+        }
+    )
+    frames["Share of Package Energy (%)"] = frames["Package Energy (J)"] / energy * 100
+    frames["Self Share of Package Energy (%)"] = frames["Self Package Energy (J)"] / energy * 100
+    frames = frames.sort_values(["Self Package Energy (J)", "Package Energy (J)"], ascending=False).round(6)
+    frames.to_csv(args.output, index=False)
+    print(frames.head(args.top).to_string(index=False))
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,44 @@
+from utils import read_csv_safely
+import pandas as pd
+import argparse
+
+PHASES = ["Startup", "First", "Steady", "Teardown"]
+
+
+def parse_args():
+    parser = argparse.ArgumentParser()
+    parser.add_argument("startup", help="startup.csv of the Java agent, one row per run.")
+    parser.add_argument("-s", "--skip", type=int, default=0, help="Number of runs to skip.")
+    parser.add_argument("-o", "--output", type=str, default="split.csv", help="Output CSV file.")
+    return parser.parse_args()
+
+
+def main():
+    args = parse_args()
+
+    df = read_csv_safely(args.startup)
+    if args.skip > 0:
+        df = df.iloc[args.skip :]
+    if df.empty:
+        raise RuntimeError(f"No runs in {args.startup}")
+
+    time = pd.Series({phase: df[f"{phase}Nanos"].mean() / 1e6 for phase in PHASES})
+    pkg = pd.Series({phase: df[f"{phase}PkgMicrojoules"].mean() / 1e6 for phase in PHASES})
+    split = pd.DataFrame(
+        {
+            "Phase": PHASES,
+            "Time (ms)": time.values,
+            "Package Energy (J)": pkg.values,
+            "Share of Package Energy (%)": (pkg / pkg.sum() * 100).values,
+        }
+    ).round(4)
+
+    # The JVM tax is what the run costs besides its windows of work
+    tax = pkg["Startup"] + pkg["Teardown"]
+    print(split.to_string(index=False))
+    print(f"JVM tax {tax:.4f} J, work {pkg['First'] + pkg['Steady']:.4f} J")
+    split.to_csv(args.output, index=False)
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,50 @@
+from utils import read_csv_safely, calculate_energy
+import pandas as pd
+import argparse
+
+
+def parse_args():
+    parser = argparse.ArgumentParser()
+    parser.add_argument("rapl", help="RAPL CSV file of a suite run.")
+    parser.add_argument("suite", help="suite.csv of the same run, one row per RAPL row.")
+    parser.add_argument("-s", "--skip", type=int, default=0, help="Number of windows to skip per benchmark.")
+    parser.add_argument("-o", "--output", type=str, default="benchmarks.csv", help="Output CSV file.")
+    return parser.parse_args()
+
+
+def main():
+    args = parse_args()
+
+    rapl = read_csv_safely(args.rapl)
+    suite = read_csv_safely(args.suite)
+    if len(rapl) != len(suite):
+        raise RuntimeError(f"{args.rapl} has {len(rapl)} rows but {args.suite} has {len(suite)}")
+
+    power_unit = int(args.rapl.split("_")[-1].split(".")[0])
+    pkg, core, uncore, dram, time = calculate_energy(rapl, power_unit)
+
+    df = pd.DataFrame(
+        {
+            "Benchmark": suite["Benchmark"].values,
+            "Order": suite["Order"].values,
+            "Seed": suite["Seed"].values,
+            "Elapsed Time (ms)": time.values,
+            "Package Energy (J)": pkg.values,
+            "DRAM Energy (J)": dram.values,
+        }
+    )
+    # Suites appended to the same files restart their windows at 0
+    df["Run"] = (suite["Window"] == 0).cumsum().values
+    df["Window"] = df.groupby(["Run", "Benchmark"]).cumcount()
+    df = df[df["Window"] >= args.skip]
+
+    summary = df.groupby(["Run", "Seed", "Order", "Benchmark"])[
+        ["Elapsed Time (ms)", "Package Energy (J)", "DRAM Energy (J)"]
+    ].mean()
+    summary = summary.reset_index().round(4)
+    summary.to_csv(args.output, index=False)
+    print(summary.to_string(index=False))
+
+
+if __name__ == "__main__":
+    main()
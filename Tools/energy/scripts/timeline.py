@@ -0,0 +1,71 @@
+from utils import read_csv_safely, windows
+import pandas as pd
+import matplotlib.pyplot as plt
+import argparse
+
+
+def parse_args():
+    parser = argparse.ArgumentParser()
+    parser.add_argument("timeline", help="timeline.csv of the Java harness.")
+    parser.add_argument("-w", "--window", type=int, default=-1, help="Window to plot, counted from 0, the last by default.")
+    parser.add_argument("--smooth", type=int, default=5, help="Number of samples to average the plotted power over.")
+    parser.add_argument("-s", "--skip", type=int, default=0, help="Number of windows to skip in the summary.")
+    parser.add_argument("-o", "--output", type=str, default="power.csv", help="Output CSV file.")
+    parser.add_argument("--plot", type=str, default="timeline.png", help="Output plot.")
+    return parser.parse_args()
+
+
+def main():
+    args = parse_args()
+
+    df = read_csv_safely(args.timeline)
+    df["Markers"] = df["Markers"].fillna("")
+    df["Window"] = windows(df, "Micros", ordered=True)
+    count = df["Window"].nunique()
+    if count == 0:
+        raise RuntimeError(f"No samples in {args.timeline}")
+
+    df["Time (ms)"] = df["Micros"] / 1e3
+    df["Package Power (W)"] = df["PkgMilliwatts"] / 1e3
+    df["Core Power (W)"] = df["CoreMilliwatts"] / 1e3
+    df["DRAM Power (W)"] = df["DramMilliwatts"] / 1e3
+    power = ["Package Power (W)", "Core Power (W)", "DRAM Power (W)"]
+
+    # Samples overlapping several markers count for each of them
+    measured = df[df["Window"] >= args.skip]
+    marked = measured.assign(Marker=measured["Markers"].str.split(";")).explode("Marker")
+    marked["Marker"] = marked["Marker"].replace("", "unmarked")
+    summary = marked.groupby("Marker")[power].agg(["mean", "max"])
+    summary.columns = [f"{'Mean' if stat == 'mean' else 'Peak'} {column}" for column, stat in summary.columns]
+    summary.insert(0, "Samples", marked.groupby("Marker").size())
+    summary = summary.reset_index().round(4)
+    summary.to_csv(args.output, index=False)
+    print(summary.to_string(index=False))
+
+    window = df[df["Window"] == (count + args.window if args.window < 0 else args.window)]
+    if window.empty:
+        raise RuntimeError(f"No window {args.window} in {args.timeline}")
+    window = window.assign(Start=window["Time (ms)"].shift(fill_value=0))
+    fig, ax = plt.subplots(figsize=(12, 5))
+    for column in power:
+        ax.plot(window["Time (ms)"], window[column].rolling(args.smooth, min_periods=1).mean(), label=column)
+
+    # Shade the samples each marker overlaps, GC pauses in grey
+    names = sorted({name for markers in window["Markers"] for name in markers.split(";") if name})
+    colors = plt.get_cmap("tab10")
+    for index, name in enumerate(names):
+        spans = window[window["Markers"].str.split(";").apply(lambda markers: name in markers)]
+        color = "grey" if name.startswith("gc:") else colors(index % 10)
+        for position, (start, end) in enumerate(zip(spans["Start"], spans["Time (ms)"])):
+            ax.axvspan(start, end, color=color, alpha=0.2, lw=0, label=name if position == 0 else None)
+
+    ax.set_xlabel("Time (ms)")
+    ax.set_ylabel("Power (W)")
+    ax.set_title(f"Iteration {window['Iteration'].iloc[0]}")
+    ax.legend(loc="upper right", fontsize="small")
+    fig.tight_layout()
+    fig.savefig(args.plot)
+
+
+if __name__ == "__main__":
+    main()
@@ -30,3 +30,27 @@ def calculate_energy(df, power_unit: int):
     dram = (df.iloc[:, 9] - df.iloc[:, 8]) * multiplier
     time = df.iloc[:, 1] - df.iloc[:, 0]
     return pkg, core, uncore, dram, time
+
+
+def windows(df, key, ordered=False):
+    """Number the windows of a log with a row per key and window from 0.
+
+    A window ends when its iteration changes or `key` starts over, going back
+    when it is `ordered` like a time and repeating otherwise, which also
+    splits the runs of no-warmup appended to the same log.
+    """
+    if ordered:
+        return ((df["Iteration"] != df["Iteration"].shift()) | (df[key].diff() < 0)).cumsum() - 1
+
+    ids = []
+    window = -1
+    iteration = None
+    seen = set()
+    for row_iteration, value in zip(df["Iteration"], df[key]):
+        if row_iteration != iteration or value in seen:
+            window += 1
+            iteration = row_iteration
+            seen = set()
+        seen.add(value)
+        ids.append(window)
+    return pd.Series(ids, index=df.index)